@@ -0,0 +1,102 @@
+package org.example.authservice.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.authservice.util.JwtClaims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Извлечение sub (и sub + exp) из access-токена Keycloak: прежний JwtPayload (split по regex, String, JsonNode)
+ * против потокового JwtClaims. roles — сколько ролей в realm_access/resource_access: от него растёт payload,
+ * который старый вариант целиком превращает в дерево, а новый пропускает через skipChildren.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtClaimsBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    @Param({"3", "40"})
+    public int roles;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        StringJoiner realmRoles = new StringJoiner(",");
+        StringJoiner clientRoles = new StringJoiner(",");
+        for (int i = 0; i < roles; i++) {
+            realmRoles.add("\"realm-role-" + i + "\"");
+            clientRoles.add("\"client-role-" + i + "\"");
+        }
+        long now = 1_760_000_000L;
+        // порядок и набор полей — как у Keycloak 24: sub идёт после exp/iat/jti/iss/aud
+        String payload = "{\"exp\":" + (now + 300) + ",\"iat\":" + now + ",\"auth_time\":" + now
+                + ",\"jti\":\"6f1c2d4e-8a3b-4c5d-9e6f-7a8b9c0d1e2f\""
+                + ",\"iss\":\"http://keycloak:8080/realms/rs-exam-project\""
+                + ",\"aud\":[\"exam-client\",\"account\"]"
+                + ",\"sub\":\"0b8f3c2a-1d4e-4f5a-9b6c-7d8e9f0a1b2c\""
+                + ",\"typ\":\"Bearer\",\"azp\":\"exam-client\""
+                + ",\"session_state\":\"a1b2c3d4-e5f6-4789-abcd-ef0123456789\""
+                + ",\"acr\":\"1\",\"allowed-origins\":[\"http://localhost:3000\"]"
+                + ",\"realm_access\":{\"roles\":[\"offline_access\",\"uma_authorization\"," + realmRoles + "]}"
+                + ",\"resource_access\":{\"exam-client\":{\"roles\":[" + clientRoles + "]},"
+                + "\"account\":{\"roles\":[\"manage-account\",\"manage-account-links\",\"view-profile\"]}}"
+                + ",\"scope\":\"openid email profile\",\"sid\":\"a1b2c3d4-e5f6-4789-abcd-ef0123456789\""
+                + ",\"email_verified\":true,\"name\":\"Ivan Petrov\",\"preferred_username\":\"ivan\""
+                + ",\"given_name\":\"Ivan\",\"family_name\":\"Petrov\",\"email\":\"ivan@example.com\"}";
+        String header = "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"Xk3v9Qm2Lr8Tz5Wn1Yb7Pc4Hd6Jf0Gs\"}";
+        byte[] signature = new byte[256];
+        new Random(42).nextBytes(signature);
+        token = ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "."
+                + ENCODER.encodeToString(signature);
+
+        if (!legacySub().equals(streamingSub())) {
+            throw new IllegalStateException("Implementations disagree on sub");
+        }
+    }
+
+    @Benchmark
+    public String legacySub() {
+        try {
+            String[] parts = token.split("\\.");
+            String payloadJson = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            JsonNode node = MAPPER.readTree(payloadJson);
+            return node.get("sub").asText();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot parse JWT payload", e);
+        }
+    }
+
+    @Benchmark
+    public String streamingSub() {
+        return JwtClaims.subject(token);
+    }
+
+    @Benchmark
+    public String[] streamingSubAndExp() {
+        return JwtClaims.strings(token, "sub", "exp");
+    }
+}
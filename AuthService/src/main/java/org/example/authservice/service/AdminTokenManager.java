@@ -0,0 +1,162 @@
+package org.example.authservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admin-токен master realm для Admin API Keycloak.
+ * Токен кешируется до истечения; за refresh-ahead до конца жизни запрашивается новый в фоне, а вызывающие
+ * пока получают старый. Одновременные запросы нового токена склеиваются в один поход в Keycloak.
+ */
+@Component
+public class AdminTokenManager {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminTokenManager.class);
+    // запас на рассинхрон часов и время самого запроса к Admin API
+    private static final Duration EXPIRY_SKEW = Duration.ofSeconds(5);
+
+    private final WebClient webClient;
+    private final String adminUsername;
+    private final String adminPassword;
+    private final Duration refreshAhead;
+    private final Duration fetchTimeout;
+
+    private final AtomicReference<CachedToken> cached = new AtomicReference<>();
+    private final AtomicReference<Mono<CachedToken>> inFlight = new AtomicReference<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer fetchSuccess;
+    private final Timer fetchError;
+
+    public AdminTokenManager(
+            WebClient.Builder builder,
+            MeterRegistry meterRegistry,
+            @Value("${keycloak.base-url}") String baseUrl,
+            @Value("${keycloak.admin.username}") String adminUsername,
+            @Value("${keycloak.admin.password}") String adminPassword,
+            @Value("${keycloak.admin.refresh-ahead-seconds:30}") long refreshAheadSeconds,
+            @Value("${keycloak.admin.token-timeout-seconds:10}") long fetchTimeoutSeconds
+    ) {
+        this.webClient = builder.baseUrl(baseUrl).build();
+        this.adminUsername = adminUsername;
+        this.adminPassword = adminPassword;
+        this.refreshAhead = Duration.ofSeconds(refreshAheadSeconds);
+        this.fetchTimeout = Duration.ofSeconds(fetchTimeoutSeconds);
+
+        this.hits = Counter.builder("keycloak.admin.token.requests").tag("outcome", "hit").register(meterRegistry);
+        this.misses = Counter.builder("keycloak.admin.token.requests").tag("outcome", "miss").register(meterRegistry);
+        this.fetchSuccess = Timer.builder("keycloak.admin.token.fetch").tag("outcome", "success").register(meterRegistry);
+        this.fetchError = Timer.builder("keycloak.admin.token.fetch").tag("outcome", "error").register(meterRegistry);
+        Gauge.builder("keycloak.admin.token.age.seconds", cached, ref -> {
+            CachedToken token = ref.get();
+            return token == null ? Double.NaN : Duration.between(token.fetchedAt(), Instant.now()).toMillis() / 1000.0;
+        }).register(meterRegistry);
+    }
+
+    public Mono<String> token() {
+        Instant now = Instant.now();
+        CachedToken token = cached.get();
+        if (token != null && now.isBefore(token.expiresAt())) {
+            hits.increment();
+            if (!now.isBefore(token.refreshAt())) {
+                // обновляем заранее, текущий запрос не ждёт
+                refresh().subscribe(t -> { }, e -> log.warn("Background admin token refresh failed: {}", e.toString()));
+            }
+            return Mono.just(token.value());
+        }
+        misses.increment();
+        return refresh().map(CachedToken::value);
+    }
+
+    // Admin API ответил 401 на этот токен (отозван, Keycloak перезапущен) — следующий token() сходит за новым
+    public void invalidate(String value) {
+        CachedToken token = cached.get();
+        if (token != null && token.value().equals(value)) {
+            cached.compareAndSet(token, null);
+        }
+    }
+
+    private Mono<CachedToken> refresh() {
+        while (true) {
+            Mono<CachedToken> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+            Sinks.One<CachedToken> sink = Sinks.one();
+            Mono<CachedToken> shared = sink.asMono();
+            if (inFlight.compareAndSet(null, shared)) {
+                // подписка отвязана от вызывающих: отмена одного запроса не обрывает общий fetch.
+                // fetch всегда завершается (timeout, пустой ответ — ошибка); inFlight освобождается до того, как
+                // ждущие получат результат, иначе повтор сразу после ошибки получил бы тот же упавший shared
+                fetch().subscribe(
+                        t -> {
+                            cached.set(t);
+                            inFlight.compareAndSet(shared, null);
+                            sink.tryEmitValue(t);
+                        },
+                        e -> {
+                            inFlight.compareAndSet(shared, null);
+                            sink.tryEmitError(e);
+                        });
+                return shared;
+            }
+        }
+    }
+
+    private Mono<CachedToken> fetch() {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return webClient.post()
+                    .uri("/realms/master/protocol/openid-connect/token")
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                    .body(BodyInserters.fromFormData("grant_type", "password")
+                            .with("client_id", "admin-cli")
+                            .with("username", adminUsername)
+                            .with("password", adminPassword))
+                    .retrieve()
+                    .bodyToMono(Map.class)
+                    .map(this::toCachedToken)
+                    .switchIfEmpty(Mono.error(() -> new IllegalStateException("Keycloak token response is empty")))
+                    .timeout(fetchTimeout)
+                    .doOnSuccess(t -> fetchSuccess.record(Duration.ofNanos(System.nanoTime() - started)))
+                    .doOnError(e -> fetchError.record(Duration.ofNanos(System.nanoTime() - started)));
+        });
+    }
+
+    private CachedToken toCachedToken(Map<?, ?> body) {
+        String value = (String) body.get("access_token");
+        if (value == null) {
+            throw new IllegalStateException("Keycloak token response has no access_token");
+        }
+        Instant now = Instant.now();
+        long expiresIn = body.get("expires_in") instanceof Number n ? n.longValue() : 60;
+        Duration lifetime = Duration.ofSeconds(expiresIn).minus(EXPIRY_SKEW);
+        if (lifetime.isNegative()) {
+            lifetime = Duration.ZERO;
+        }
+        // у admin-cli токен живёт минуту — не обновляем раньше половины жизни
+        Duration ahead = refreshAhead.compareTo(lifetime.dividedBy(2)) > 0 ? lifetime.dividedBy(2) : refreshAhead;
+        return new CachedToken(value, now, now.plus(lifetime).minus(ahead), now.plus(lifetime));
+    }
+
+    private record CachedToken(String value, Instant fetchedAt, Instant refreshAt, Instant expiresAt) {
+    }
+}
@@ -3,17 +3,20 @@ package org.example.authservice.service;
 import org.example.authservice.dto.LoginRequest;
 import org.example.authservice.dto.LoginResponse;
 import org.example.authservice.dto.RegisterRequest;
+import org.example.authservice.util.JwtClaims;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.util.Map;
+import java.util.function.Function;
 
 @Service
 public class KeycloakService {
@@ -22,8 +25,7 @@ public class KeycloakService {
     private final String realm;
     private final String clientId;
     private final String clientSecret;
-    private final String adminUsername;
-    private final String adminPassword;
+    private final AdminTokenManager adminTokenManager;
     private final LoginSessionService loginSessionService;
 
     public KeycloakService(
@@ -32,23 +34,31 @@ public class KeycloakService {
             @Value("${keycloak.realm}") String realm,
             @Value("${keycloak.client-id}") String clientId,
             @Value("${keycloak.client-secret}") String clientSecret,
-            @Value("${keycloak.admin.username}") String adminUsername,
-            @Value("${keycloak.admin.password}") String adminPassword,
+            AdminTokenManager adminTokenManager,
             LoginSessionService loginSessionService
     ) {
         this.webClient = builder.baseUrl(baseUrl).build();
         this.realm = realm;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
-        this.adminUsername = adminUsername;
-        this.adminPassword = adminPassword;
+        this.adminTokenManager = adminTokenManager;
         this.loginSessionService = loginSessionService;
     }
 
     public Mono<Void> register(RegisterRequest request) {
-        return getAdminToken()
-                .flatMap(token -> createUser(token, request)
-                        .flatMap(userId -> setPassword(token, userId, request.password())));
+        // шаги повторяются по отдельности: 401 на setPassword не должен пересоздавать уже созданного пользователя
+        return withAdminToken(token -> createUser(token, request))
+                .flatMap(userId -> withAdminToken(token -> setPassword(token, userId, request.password())));
+    }
+
+    // закешированный токен мог стать недействительным раньше exp — один повтор этого же вызова со свежим
+    private <T> Mono<T> withAdminToken(Function<String, Mono<T>> call) {
+        return adminTokenManager.token()
+                .flatMap(token -> call.apply(token)
+                        .onErrorResume(WebClientResponseException.Unauthorized.class, e -> {
+                            adminTokenManager.invalidate(token);
+                            return adminTokenManager.token().flatMap(call);
+                        }));
     }
 
     public Mono<LoginResponse> login(LoginRequest request) {
@@ -71,24 +81,11 @@ public class KeycloakService {
                         ((Number) body.getOrDefault("expires_in", 0)).longValue()
                 ))
                 .doOnNext(resp -> {
-                    String sub = org.example.authservice.util.JwtPayload.getSub(resp.accessToken());
+                    String sub = JwtClaims.subject(resp.accessToken());
                     loginSessionService.createSession(sub);
                 });
     }
 
-    private Mono<String> getAdminToken() {
-        return webClient.post()
-                .uri("/realms/master/protocol/openid-connect/token")
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-                .body(BodyInserters.fromFormData("grant_type", "password")
-                        .with("client_id", "admin-cli")
-                        .with("username", adminUsername)
-                        .with("password", adminPassword))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(body -> (String) body.get("access_token"));
-    }
-
     private Mono<String> createUser(String token, RegisterRequest request) {
         return webClient.post()
                 .uri("/admin/realms/{realm}/users", realm)
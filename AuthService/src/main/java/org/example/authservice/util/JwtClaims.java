@@ -0,0 +1,215 @@
+package org.example.authservice.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Чтение claim'ов из payload JWT без проверки подписи — только для токенов, которые мы сами только что
+ * получили от Keycloak (или уже проверенных). Подпись не трогается, payload декодируется из base64url
+ * небольшими порциями прямо в буфер потокового парсера и только до найденных полей — без String и дерева JsonNode.
+ * Используется только здесь, для ответов Keycloak: gateway токены клиентов проверяет и разбирает своим
+ * декодером (CachingReactiveJwtDecoder), а не этим классом.
+ * Вложенные объекты и массивы (realm_access, aud списком) пропускаются — возвращаются только скалярные claim'ы.
+ */
+public final class JwtClaims {
+
+    // payload Keycloak-токена с ролями — 1–2 КБ, sub и exp в первых ~300 байтах; порция в 192 байта
+    // позволяет не декодировать роли, когда нужные claim'ы уже найдены
+    private static final int CHUNK_BYTES = 192;
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private JwtClaims() {
+    }
+
+    public static String subject(String jwt) {
+        String sub = string(jwt, "sub");
+        if (sub == null) {
+            throw new IllegalArgumentException("JWT payload has no 'sub' claim");
+        }
+        return sub;
+    }
+
+    // null, если claim'а нет или он не скалярный
+    public static String string(String jwt, String claim) {
+        try (JsonParser parser = payload(jwt)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean match = claim.equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (match && value.isScalarValue()) {
+                    return value == JsonToken.VALUE_NULL ? null : parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot parse JWT payload", e);
+        }
+    }
+
+    // числовые claim'ы (exp, iat, auth_time) без промежуточной строки
+    public static long number(String jwt, String claim, long fallback) {
+        try (JsonParser parser = payload(jwt)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean match = claim.equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (match && value.isNumeric()) {
+                    return parser.getLongValue();
+                }
+                parser.skipChildren();
+            }
+            return fallback;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot parse JWT payload", e);
+        }
+    }
+
+    // несколько claim'ов за один проход; значения в порядке имён, отсутствующие — null
+    public static String[] strings(String jwt, String... claims) {
+        String[] values = new String[claims.length];
+        int remaining = claims.length;
+        try (JsonParser parser = payload(jwt)) {
+            while (remaining > 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                int index = indexOf(claims, parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (index >= 0 && values[index] == null && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    values[index] = parser.getText();
+                    remaining--;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot parse JWT payload", e);
+        }
+    }
+
+    private static int indexOf(String[] claims, String name) {
+        for (int i = 0; i < claims.length; i++) {
+            if (claims[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // парсер, стоящий на START_OBJECT payload'а
+    private static JsonParser payload(String jwt) throws IOException {
+        if (jwt == null) {
+            throw new IllegalArgumentException("JWT is null");
+        }
+        int first = jwt.indexOf('.');
+        int second = first < 0 ? -1 : jwt.indexOf('.', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("JWT must have three segments");
+        }
+        JsonParser parser = FACTORY.createParser(new Base64UrlInputStream(jwt, first + 1, second));
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IllegalArgumentException("JWT payload is not a JSON object");
+        }
+        return parser;
+    }
+
+    // base64url без паддинга (RFC 7515), "=" в конце допускаем; отдаёт не больше CHUNK_BYTES за read.
+    // Видим в пакете ради тестов чтения по 1–2 байта, которым Jackson не пользуется
+    static final class Base64UrlInputStream extends InputStream {
+
+        private final String s;
+        private final int end;
+        private int pos;
+        // остаток группы при чтении меньше трёх байт — Jackson так не читает, но контракт InputStream допускает
+        private byte[] carry;
+        private int carryPos;
+        private int carryLen;
+
+        Base64UrlInputStream(String s, int from, int to) {
+            while (to > from && s.charAt(to - 1) == '=') {
+                to--;
+            }
+            if ((to - from) % 4 == 1) {
+                throw new IllegalArgumentException("Truncated base64url in JWT payload");
+            }
+            this.s = s;
+            this.pos = from;
+            this.end = to;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (carryPos < carryLen) {
+                int n = Math.min(len, carryLen - carryPos);
+                System.arraycopy(carry, carryPos, b, off, n);
+                carryPos += n;
+                return n;
+            }
+            if (pos >= end) {
+                return -1;
+            }
+            if (len < 3) {
+                if (carry == null) {
+                    carry = new byte[3];
+                }
+                carryLen = decodeGroup(carry, 0);
+                carryPos = 0;
+                return read(b, off, len);
+            }
+            int limit = off + Math.min(len, CHUNK_BYTES);
+            int n = off;
+            while (pos < end && n + 3 <= limit) {
+                n += decodeGroup(b, n);
+            }
+            return n - off;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        // четыре символа -> три байта, хвост из 2-3 символов -> 1-2 байта
+        private int decodeGroup(byte[] b, int off) {
+            int chars = Math.min(4, end - pos);
+            int quad = 0;
+            for (int i = 0; i < 4; i++) {
+                quad = quad << 6 | (i < chars ? sextet(pos + i) : 0);
+            }
+            pos += chars;
+            b[off] = (byte) (quad >> 16);
+            if (chars > 2) {
+                b[off + 1] = (byte) (quad >> 8);
+            }
+            if (chars > 3) {
+                b[off + 2] = (byte) quad;
+            }
+            return chars - 1;
+        }
+
+        private int sextet(int index) {
+            char c = s.charAt(index);
+            int v = c < 128 ? BASE64URL[c] : -1;
+            if (v < 0) {
+                throw new IllegalArgumentException("Illegal base64url character in JWT payload");
+            }
+            return v;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Keycloak подменён ExchangeFunction: ответы берутся по очереди из responses
+class AdminTokenManagerTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Deque<Mono<ClientResponse>> responses = new ArrayDeque<>();
+
+    private AdminTokenManager manager() {
+        ExchangeFunction keycloak = request -> {
+            calls.incrementAndGet();
+            return responses.isEmpty() ? Mono.error(new IllegalStateException("unexpected call")) : responses.poll();
+        };
+        return new AdminTokenManager(WebClient.builder().exchangeFunction(keycloak), new SimpleMeterRegistry(),
+                "http://keycloak", "admin", "admin", 30, 1);
+    }
+
+    @Test
+    void emptyResponseFailsAndNextCallFetchesAgain() {
+        responses.add(Mono.just(ClientResponse.create(HttpStatus.OK).build()));
+        responses.add(Mono.just(tokenResponse("second")));
+        AdminTokenManager manager = manager();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> manager.token().block(Duration.ofSeconds(5)));
+        assertTrue(e.getMessage().contains("empty"), e.getMessage());
+
+        assertEquals("second", manager.token().block(Duration.ofSeconds(5)));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void hungKeycloakTimesOutAndNextCallFetchesAgain() {
+        responses.add(Mono.never());
+        responses.add(Mono.just(tokenResponse("after-timeout")));
+        AdminTokenManager manager = manager();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> manager.token().block(Duration.ofSeconds(5)));
+        // таймаут самого fetch (1 с), а не block(5 с)
+        assertTrue(e.getCause() instanceof TimeoutException, e.toString());
+
+        assertEquals("after-timeout", manager.token().block(Duration.ofSeconds(5)));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void concurrentCallersShareOneFetchAndCachedTokenIsReused() {
+        responses.add(Mono.just(tokenResponse("shared")).delayElement(Duration.ofMillis(200)));
+        AdminTokenManager manager = manager();
+
+        Mono<String> first = manager.token();
+        Mono<String> second = manager.token();
+        assertEquals("shared", first.block(Duration.ofSeconds(5)));
+        assertEquals("shared", second.block(Duration.ofSeconds(5)));
+        assertEquals("shared", manager.token().block(Duration.ofSeconds(5)));
+        assertEquals(1, calls.get());
+    }
+
+    private static ClientResponse tokenResponse(String token) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"access_token\":\"" + token + "\",\"expires_in\":300}")
+                .build();
+    }
+}
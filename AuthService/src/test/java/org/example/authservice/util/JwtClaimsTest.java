@@ -0,0 +1,132 @@
+package org.example.authservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Эталон — Base64.getUrlDecoder(): потоковый декодер должен давать ровно те же байты
+class JwtClaimsTest {
+
+    private static final Base64.Encoder UNPADDED = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Encoder PADDED = Base64.getUrlEncoder();
+
+    @Test
+    void decodesEveryTailLengthLikeJdk() throws Exception {
+        Random random = new Random(7);
+        // длины 0..600 дают хвосты из 2, 3 и 4 символов и несколько порций по 192 байта
+        for (int length = 0; length <= 600; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String encoded = UNPADDED.encodeToString(data);
+            assertArrayEquals(Base64.getUrlDecoder().decode(encoded), readAll(stream(encoded), 8192),
+                    "length " + length);
+        }
+    }
+
+    @Test
+    void acceptsPadding() throws Exception {
+        for (int length = 1; length <= 3; length++) {
+            byte[] data = "abc".substring(0, length).getBytes(StandardCharsets.US_ASCII);
+            String encoded = PADDED.encodeToString(data);
+            assertArrayEquals(Base64.getUrlDecoder().decode(encoded), readAll(stream(encoded), 8192), encoded);
+        }
+        assertEquals("ivan", JwtClaims.subject(token(PADDED, "{\"sub\":\"ivan\"}")));
+        assertEquals("ivan", JwtClaims.subject(token(PADDED, "{\"sub\":\"ivan\",\"x\":1}")));
+    }
+
+    @Test
+    void readsOneAndTwoBytesAtATime() throws Exception {
+        byte[] data = new byte[500];
+        new Random(11).nextBytes(data);
+        for (int length = 497; length <= 500; length++) {
+            byte[] slice = Arrays.copyOf(data, length);
+            String encoded = UNPADDED.encodeToString(slice);
+            assertArrayEquals(slice, readAll(stream(encoded), 1), "len 1, length " + length);
+            assertArrayEquals(slice, readAll(stream(encoded), 2), "len 2, length " + length);
+            assertArrayEquals(slice, readSingleBytes(stream(encoded)), "read(), length " + length);
+        }
+    }
+
+    @Test
+    void multibyteCharactersAcrossChunkBoundary() {
+        // двух-, трёх- и четырёхбайтные символы, сдвигаемые через границу первой порции в 192 байта
+        String value = "Љубав ћирилица 日本語 🚀 Толстой";
+        for (int shift = 150; shift <= 200; shift++) {
+            String filler = "x".repeat(shift);
+            String payload = "{\"pad\":\"" + filler + "\",\"name\":\"" + value + "\",\"sub\":\"s-" + shift + "\"}";
+            String jwt = token(UNPADDED, payload);
+            assertEquals(value, JwtClaims.string(jwt, "name"), "shift " + shift);
+            assertArrayEquals(new String[]{"s-" + shift, value}, JwtClaims.strings(jwt, "sub", "name"));
+        }
+    }
+
+    @Test
+    void scalarAndNumericClaims() {
+        String jwt = token(UNPADDED, "{\"exp\":1760000300,\"aud\":[\"a\",\"b\"],"
+                + "\"realm_access\":{\"roles\":[\"r\"]},\"sub\":\"u-1\",\"email\":null}");
+        assertEquals("u-1", JwtClaims.subject(jwt));
+        assertEquals(1760000300L, JwtClaims.number(jwt, "exp", -1));
+        assertEquals(-1L, JwtClaims.number(jwt, "iat", -1));
+        assertNull(JwtClaims.string(jwt, "aud"));
+        assertNull(JwtClaims.string(jwt, "email"));
+        assertArrayEquals(new String[]{"u-1", "1760000300", null}, JwtClaims.strings(jwt, "sub", "exp", "iat"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        String header = UNPADDED.encodeToString("{}".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(null));
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject("only-one-segment"));
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(header + ".e30"));
+        // символ не из алфавита base64url
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(header + ".eyJzdWIi*jEifQ.sig"));
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(header + ".eyJzdWIiOiJ1+In0.sig"));
+        // 4n+1 символов — невозможная длина
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(header + ".eyJzd.sig"));
+        // не JSON-объект и оборванный JSON
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(token(UNPADDED, "[1,2]")));
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(token(UNPADDED, "{\"sub\":")));
+        // нет sub
+        assertThrows(IllegalArgumentException.class, () -> JwtClaims.subject(token(UNPADDED, "{\"x\":1}")));
+    }
+
+    private static String token(Base64.Encoder encoder, String payload) {
+        return UNPADDED.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".c2ln";
+    }
+
+    // поток по всей строке, как его создаёт JwtClaims для сегмента payload
+    private static InputStream stream(String encoded) {
+        String jwt = "h." + encoded + ".s";
+        return new JwtClaims.Base64UrlInputStream(jwt, 2, 2 + encoded.length());
+    }
+
+    private static byte[] readAll(InputStream in, int len) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[len];
+        int n;
+        while ((n = in.read(buffer, 0, len)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readSingleBytes(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+}
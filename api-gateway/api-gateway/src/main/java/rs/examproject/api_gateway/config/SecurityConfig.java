@@ -1,10 +1,21 @@
 package rs.examproject.api_gateway.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoders;
+import org.springframework.security.oauth2.jwt.SupplierReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.util.StringUtils;
+import rs.examproject.api_gateway.security.CachingReactiveJwtDecoder;
+import rs.examproject.api_gateway.security.VerifiedIdentityFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 @Configuration
 public class SecurityConfig {
@@ -22,4 +33,32 @@ public class SecurityConfig {
                 .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()))
                 .build();
     }
+
+    // заменяет декодер из автоконфигурации; discovery Keycloak — лениво, при первом токене, как и там
+    @Bean
+    ReactiveJwtDecoder jwtDecoder(
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+            @Value("${gateway.jwt-cache.max-entries:10000}") long maxEntries,
+            @Value("${gateway.jwt-cache.max-ttl-seconds:60}") long maxTtlSeconds,
+            MeterRegistry meterRegistry) {
+        ReactiveJwtDecoder decoder = new SupplierReactiveJwtDecoder(() -> ReactiveJwtDecoders.fromIssuerLocation(issuerUri));
+        if (maxEntries <= 0) {
+            return decoder;
+        }
+        return new CachingReactiveJwtDecoder(decoder, maxEntries, Duration.ofSeconds(maxTtlSeconds), meterRegistry);
+    }
+
+    @Bean
+    VerifiedIdentityFilter verifiedIdentityFilter(
+            @Value("${gateway.identity.forward:false}") boolean forward,
+            @Value("${gateway.identity.secret:}") String secret) {
+        if (forward && !StringUtils.hasText(secret)) {
+            throw new IllegalStateException("gateway.identity.secret must be set when gateway.identity.forward=true");
+        }
+        // ключ HMAC-SHA256 короче 256 бит подбирается; короткий секрет — почти наверняка placeholder
+        if (forward && secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalStateException("gateway.identity.secret must be at least 32 bytes");
+        }
+        return new VerifiedIdentityFilter(forward ? secret : null);
+    }
 }
@@ -0,0 +1,81 @@
+package rs.examproject.api_gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Кеш успешно проверенных JWT поверх обычного декодера (подпись + iss/exp).
+ * Ключ — SHA-256 токена, запись живёт не дольше maxTtl и никогда не переживает exp токена.
+ * Ошибки проверки не кешируются. Отзыв сессии в Keycloak виден не позже чем через maxTtl.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, long maxEntries, Duration maxTtl,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        return ttl(jwt, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return ttl(jwt, maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.hits = Counter.builder("gateway.jwt.cache.requests").tag("outcome", "hit").register(meterRegistry);
+        this.misses = Counter.builder("gateway.jwt.cache.requests").tag("outcome", "miss").register(meterRegistry);
+        Gauge.builder("gateway.jwt.cache.size", cache, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        String key = TokenDigest.sha256(token);
+        Jwt cached = cache.getIfPresent(key);
+        // Caffeine чистит по времени лениво — exp проверяем сами
+        if (cached != null && Instant.now().isBefore(cached.getExpiresAt())) {
+            hits.increment();
+            return Mono.just(cached);
+        }
+        misses.increment();
+        return delegate.decode(token).doOnNext(jwt -> {
+            // без exp не кешируем: нечем ограничить жизнь записи
+            if (jwt.getExpiresAt() != null && !ttl(jwt, Duration.ZERO).isZero()) {
+                cache.put(key, jwt);
+            }
+        });
+    }
+
+    // maxTtl = ZERO — только остаток жизни токена
+    private static Duration ttl(Jwt jwt, Duration maxTtl) {
+        Duration remaining = Duration.between(Instant.now(), jwt.getExpiresAt());
+        if (remaining.isNegative()) {
+            return Duration.ZERO;
+        }
+        return maxTtl.isZero() || remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl;
+    }
+}
@@ -0,0 +1,69 @@
+package rs.examproject.api_gateway.security;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Заголовок X-Verified-Jwt для сервисов за gateway: exp + "." + base64url(HMAC-SHA256(secret, exp + "." + sha256(token))).
+ * Сервис с тем же секретом проверяет HMAC вместо RSA-подписи токена. Пришедший от клиента заголовок
+ * выкидывается всегда, даже когда пересылка выключена, — подделать его снаружи нельзя.
+ */
+public class VerifiedIdentityFilter implements GlobalFilter, Ordered {
+
+    public static final String HEADER = "X-Verified-Jwt";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecretKeySpec key;
+
+    // secret == null — только очистка входящего заголовка
+    public VerifiedIdentityFilter(String secret) {
+        this.key = secret == null ? null : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerWebExchange stripped = exchange.mutate()
+                .request(r -> r.headers(h -> h.remove(HEADER)))
+                .build();
+        if (key == null) {
+            return chain.filter(stripped);
+        }
+        return stripped.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .cast(JwtAuthenticationToken.class)
+                .filter(auth -> auth.getToken().getExpiresAt() != null)
+                .map(auth -> stripped.mutate()
+                        .request(r -> r.header(HEADER, sign(auth.getToken().getTokenValue(),
+                                auth.getToken().getExpiresAt().getEpochSecond())))
+                        .build())
+                .defaultIfEmpty(stripped)
+                .flatMap(chain::filter);
+    }
+
+    private String sign(String token, long exp) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            String payload = exp + "." + TokenDigest.sha256(token);
+            return exp + "." + ENCODER.encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign verified identity header", e);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,99 @@
+package rs.examproject.file_service.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import rs.examproject.file_service.config.CompactRedisSerializer;
+import rs.examproject.file_service.config.CompactRedisSerializer.Format;
+import rs.examproject.file_service.dto.BookResponse;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение сериализаторов значений Redis на списках книг: время encode/decode, аллокации (-prof gc)
+ * и размер значения (печатается в Setup). Запуск: ./gradlew redisSerializerBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"jackson2-json", "json", "smile", "cbor", "json+gzip", "smile+gzip"})
+    public String serializer;
+
+    @Param({"20", "1000", "10000"})
+    public int books;
+
+    private RedisSerializer<Object> codec;
+    private List<BookResponse> value;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        codec = switch (serializer) {
+            case "jackson2-json" -> new Jackson2JsonRedisSerializer<>(mapper, Object.class);
+            case "json" -> new CompactRedisSerializer(mapper, Format.JSON, 0);
+            case "smile" -> new CompactRedisSerializer(mapper, Format.SMILE, 0);
+            case "cbor" -> new CompactRedisSerializer(mapper, Format.CBOR, 0);
+            case "json+gzip" -> new CompactRedisSerializer(mapper, Format.JSON, 4096);
+            case "smile+gzip" -> new CompactRedisSerializer(mapper, Format.SMILE, 4096);
+            default -> throw new IllegalArgumentException("Unknown serializer " + serializer);
+        };
+        value = books(books);
+        encoded = codec.serialize(value);
+        System.out.printf("%n%s, %d books: %d bytes%n", serializer, books, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.serialize(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return codec.deserialize(encoded);
+    }
+
+    // Похожие на реальные данные: повторяющиеся авторы, ISBN-13, близкие даты создания
+    private static List<BookResponse> books(int count) {
+        Random random = new Random(42);
+        String[] authors = {"Лев Толстой", "Фёдор Достоевский", "Antoine de Saint-Exupéry", "Ursula K. Le Guin",
+                "Terry Pratchett", "Иво Андрић", "Меша Селимовић", "Agatha Christie"};
+        String[] words = {"war", "peace", "night", "river", "house", "garden", "city", "letters", "stone", "bridge"};
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+
+        List<BookResponse> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = "The " + words[random.nextInt(words.length)] + " of " + words[random.nextInt(words.length)]
+                    + " " + (i + 1);
+            String isbn = "978" + String.format("%010d", Math.abs(random.nextLong()) % 10_000_000_000L);
+            books.add(new BookResponse((long) i + 1, title, authors[random.nextInt(authors.length)], isbn,
+                    base.plusSeconds(i * 37L + random.nextInt(30))));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,31 @@
+package rs.examproject.file_service.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * books.id раньше был IDENTITY; books_seq, созданный ddl-auto, начинается с 1 и на существующей базе
+ * выдавал бы уже занятые id. Поднимаем sequence до max(id) — pooled-оптимизатор возьмёт следующий блок выше.
+ * GREATEST не даёт откатить sequence, который уже ушёл вперёд; выполняется после обновления схемы Hibernate.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class BookIdSequence {
+
+    private final JdbcTemplate jdbc;
+
+    public BookIdSequence(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void syncWithTable() {
+        jdbc.queryForObject("""
+                SELECT setval('books_seq', GREATEST(
+                    (SELECT COALESCE(MAX(id), 0) FROM books),
+                    (SELECT last_value FROM books_seq)))
+                """, Long.class);
+    }
+}
@@ -0,0 +1,34 @@
+package rs.examproject.file_service.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Полнотекстовый индекс книг: generated-колонка search_vector (title и isbn — вес A, author — B) и GIN по ней.
+ * ddl-auto такое не создаёт, поэтому DDL идемпотентный и выполняется после того, как Hibernate обновил схему.
+ * ISBN кладётся одним токеном без дефисов и пробелов.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class BookSearchSchema {
+
+    private final JdbcTemplate jdbc;
+
+    public BookSearchSchema(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void ensureIndex() {
+        jdbc.execute("""
+                ALTER TABLE books ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+                    setweight(to_tsvector('simple', coalesce(title, '')), 'A')
+                    || setweight(to_tsvector('simple', coalesce(author, '')), 'B')
+                    || setweight(to_tsvector('simple', regexp_replace(coalesce(isbn, ''), '[^0-9Xx]', '', 'g')), 'A')
+                ) STORED
+                """);
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_books_search ON books USING GIN (search_vector)");
+    }
+}
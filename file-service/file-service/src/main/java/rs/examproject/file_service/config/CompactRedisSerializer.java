@@ -0,0 +1,111 @@
+package rs.examproject.file_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Значения Redis в JSON, Smile или CBOR, крупные — дополнительно в gzip.
+ * При чтении формат определяется по первым байтам (gzip magic, заголовок Smile, self-describe тег CBOR),
+ * поэтому смена формата или порога не ломает уже лежащие в Redis записи.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public enum Format { JSON, SMILE, CBOR }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ObjectMapper writer;
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+    private final ObjectMapper cbor;
+    private final int compressionThreshold;
+
+    /**
+     * @param compressionThreshold размер в байтах, начиная с которого значение сжимается; 0 — не сжимать
+     */
+    public CompactRedisSerializer(ObjectMapper jsonMapper, Format format, int compressionThreshold) {
+        this.json = jsonMapper;
+        // повторяющиеся значения (авторы) в Smile кодируются back-reference
+        this.smile = jsonMapper.copyWith(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build());
+        this.cbor = jsonMapper.copyWith(CBORFactory.builder().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER).build());
+        this.writer = switch (format) {
+            case JSON -> json;
+            case SMILE -> smile;
+            case CBOR -> cbor;
+        };
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (value == null) {
+            return EMPTY;
+        }
+        try {
+            // целые — всегда текстом JSON ("42"): иначе в Smile/CBOR Redis не смог бы сделать INCR по такому ключу
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                    || value instanceof BigInteger) {
+                return json.writeValueAsBytes(value);
+            }
+            byte[] bytes = writer.writeValueAsBytes(value);
+            return compressionThreshold > 0 && bytes.length >= compressionThreshold ? gzip(bytes) : bytes;
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize Redis value", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            byte[] plain = isGzip(bytes) ? gunzip(bytes) : bytes;
+            return mapperFor(plain).readValue(plain, Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot deserialize Redis value", e);
+        }
+    }
+
+    private ObjectMapper mapperFor(byte[] bytes) {
+        // Smile: ":)\n", CBOR self-describe: 0xD9 0xD9 0xF7; всё остальное — JSON (в т.ч. счётчики INCR)
+        if (bytes.length >= 3 && bytes[0] == ':' && bytes[1] == ')' && bytes[2] == '\n') {
+            return smile;
+        }
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xD9 && (bytes[1] & 0xFF) == 0xD9 && (bytes[2] & 0xFF) == 0xF7) {
+            return cbor;
+        }
+        return json;
+    }
+
+    private static boolean isGzip(byte[] bytes) {
+        return bytes.length >= 2 && (bytes[0] & 0xFF) == 0x1F && (bytes[1] & 0xFF) == 0x8B;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+}
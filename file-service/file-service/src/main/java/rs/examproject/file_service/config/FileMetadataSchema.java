@@ -0,0 +1,41 @@
+package rs.examproject.file_service.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * До дедупликации object_key был UNIQUE; ddl-auto=update старые ограничения не удаляет, и вторая загрузка
+ * одинакового содержимого падала бы на нём. Снимаем любое одиночное UNIQUE по object_key — имя у Hibernate
+ * сгенерированное, поэтому ищем по pg_constraint. Идемпотентно, выполняется после обновления схемы Hibernate.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class FileMetadataSchema {
+
+    private final JdbcTemplate jdbc;
+
+    public FileMetadataSchema(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void dropObjectKeyUnique() {
+        jdbc.execute("""
+                DO $$
+                DECLARE c record;
+                BEGIN
+                    FOR c IN SELECT con.conname
+                             FROM pg_constraint con
+                             JOIN pg_class rel ON rel.oid = con.conrelid
+                             JOIN pg_attribute att ON att.attrelid = rel.oid AND att.attnum = con.conkey[1]
+                             WHERE rel.relname = 'file_metadata' AND con.contype = 'u'
+                               AND array_length(con.conkey, 1) = 1 AND att.attname = 'object_key'
+                    LOOP
+                        EXECUTE format('ALTER TABLE file_metadata DROP CONSTRAINT %I', c.conname);
+                    END LOOP;
+                END $$
+                """);
+    }
+}
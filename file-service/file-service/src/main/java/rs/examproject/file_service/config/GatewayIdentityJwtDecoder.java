@@ -0,0 +1,120 @@
+package rs.examproject.file_service.config;
+
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Токен, уже проверенный gateway, принимается по заголовку X-Verified-Jwt (HMAC общего секрета над exp и SHA-256 токена)
+ * без повторной проверки RSA-подписи; claims разбираются из самого токена и проходят обычные валидаторы (exp, iss).
+ * Без заголовка или с неверным HMAC — полная проверка через delegate, так что прямые запросы мимо gateway работают как раньше.
+ */
+public class GatewayIdentityJwtDecoder implements JwtDecoder {
+
+    static final String HEADER = "X-Verified-Jwt";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final JwtDecoder delegate;
+    private final OAuth2TokenValidator<Jwt> validator;
+    private final SecretKeySpec key;
+    private final Converter<Map<String, Object>, Map<String, Object>> claimConverter =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+    private final Counter trusted;
+    private final Counter verified;
+
+    public GatewayIdentityJwtDecoder(JwtDecoder delegate, OAuth2TokenValidator<Jwt> validator, String secret,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.validator = validator;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.trusted = Counter.builder("security.jwt.decode").tag("path", "gateway").register(meterRegistry);
+        this.verified = Counter.builder("security.jwt.decode").tag("path", "signature").register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String header = currentHeader();
+        if (header == null || !trustedByGateway(token, header)) {
+            verified.increment();
+            return delegate.decode(token);
+        }
+        Jwt jwt = parse(token);
+        OAuth2TokenValidatorResult result = validator.validate(jwt);
+        if (result.hasErrors()) {
+            throw new JwtValidationException("JWT rejected: " + result.getErrors().iterator().next().getDescription(),
+                    result.getErrors());
+        }
+        trusted.increment();
+        return jwt;
+    }
+
+    private boolean trustedByGateway(String token, String header) {
+        int dot = header.indexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+        try {
+            long exp = Long.parseLong(header.substring(0, dot));
+            if (Instant.now().getEpochSecond() >= exp) {
+                return false;
+            }
+            String digest = ENCODER.encodeToString(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] expected = ENCODER.encode(mac.doFinal((exp + "." + digest).getBytes(StandardCharsets.US_ASCII)));
+            // сравнение за постоянное время
+            return MessageDigest.isEqual(expected, header.substring(dot + 1).getBytes(StandardCharsets.US_ASCII));
+        } catch (NumberFormatException | GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private Jwt parse(String token) {
+        try {
+            JWT parsed = JWTParser.parse(token);
+            Map<String, Object> claims = claimConverter.convert(parsed.getJWTClaimsSet().getClaims());
+            return Jwt.withTokenValue(token)
+                    .headers(h -> h.putAll(parsed.getHeader().toJSONObject()))
+                    .claims(c -> c.putAll(claims))
+                    .build();
+        } catch (ParseException e) {
+            throw new BadJwtException("Malformed JWT: " + e.getMessage(), e);
+        }
+    }
+
+    private static String currentHeader() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            HttpServletRequest request = servlet.getRequest();
+            return request.getHeader(HEADER);
+        }
+        return null;
+    }
+}
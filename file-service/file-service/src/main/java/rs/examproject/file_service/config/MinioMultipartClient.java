@@ -0,0 +1,51 @@
+package rs.examproject.file_service.config;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.Part;
+
+import java.io.RandomAccessFile;
+
+/**
+ * В MinioClient низкоуровневые multipart-операции protected — открываем их для resumable-загрузок.
+ */
+public class MinioMultipartClient extends MinioAsyncClient {
+
+    public MinioMultipartClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createUpload(String bucket, String objectKey, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", contentType);
+        return createMultipartUploadAsync(bucket, null, objectKey, headers, null)
+                .get()
+                .result()
+                .uploadId();
+    }
+
+    // из файла SDK считает подпись и отправляет часть, читая её кусками, — в heap часть целиком не лежит
+    public String uploadPart(String bucket, String objectKey, String uploadId, int partNumber,
+                             RandomAccessFile data, long length) throws Exception {
+        return uploadPartAsync(bucket, null, objectKey, data, length, uploadId, partNumber, null, null)
+                .get()
+                .etag();
+    }
+
+    public String completeUpload(String bucket, String objectKey, String uploadId, Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucket, null, objectKey, uploadId, parts, null, null).get().etag();
+    }
+
+    public void abortUpload(String bucket, String objectKey, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucket, null, objectKey, uploadId, null, null).get();
+    }
+
+    public ListMultipartUploadsResult listUploads(String bucket, String keyMarker, String uploadIdMarker)
+            throws Exception {
+        return listMultipartUploadsAsync(bucket, null, null, null, keyMarker, 1000, null, uploadIdMarker, null, null)
+                .get()
+                .result();
+    }
+}
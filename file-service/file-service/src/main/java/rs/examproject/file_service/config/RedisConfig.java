@@ -3,11 +3,12 @@ package rs.examproject.file_service.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -24,16 +25,18 @@ public class RedisConfig {
     @Bean
     public RedisTemplate<String, Object> redisTemplate(
             RedisConnectionFactory connectionFactory,
-            ObjectMapper redisObjectMapper
+            ObjectMapper redisObjectMapper,
+            @Value("${app.redis.value-format:json}") CompactRedisSerializer.Format valueFormat,
+            @Value("${app.redis.compression-threshold-bytes:0}") int compressionThreshold
     ) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
         StringRedisSerializer keySerializer = new StringRedisSerializer();
 
-        // Важно: serializer с mapper, который умеет Instant
-        Jackson2JsonRedisSerializer<Object> valueSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        valueSerializer.setObjectMapper(redisObjectMapper);
+        // Важно: serializer с mapper, который умеет Instant; формат и сжатие задаются свойствами
+        CompactRedisSerializer valueSerializer =
+                new CompactRedisSerializer(redisObjectMapper, valueFormat, compressionThreshold);
 
         template.setKeySerializer(keySerializer);
         template.setValueSerializer(valueSerializer);
@@ -43,4 +46,11 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
@@ -1,10 +1,19 @@
 package rs.examproject.file_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoders;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.SupplierJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
 
 @Configuration
 public class SecurityConfig {
@@ -20,4 +29,21 @@ public class SecurityConfig {
                 .oauth2ResourceServer(oauth -> oauth.jwt(Customizer.withDefaults()))
                 .build();
     }
+
+    // заменяет декодер из автоконфигурации; discovery Keycloak — лениво, при первом токене, как и там
+    @Bean
+    JwtDecoder jwtDecoder(@Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                          @Value("${app.security.gateway-identity.secret:}") String gatewaySecret,
+                          MeterRegistry meterRegistry) {
+        JwtDecoder decoder = new SupplierJwtDecoder(() -> JwtDecoders.fromIssuerLocation(issuerUri));
+        if (!StringUtils.hasText(gatewaySecret)) {
+            return decoder;
+        }
+        // тот же минимум, что и в gateway: с коротким секретом HMAC подделывается перебором
+        if (gatewaySecret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalStateException("app.security.gateway-identity.secret must be at least 32 bytes");
+        }
+        return new GatewayIdentityJwtDecoder(decoder, JwtValidators.createDefaultWithIssuer(issuerUri),
+                gatewaySecret, meterRegistry);
+    }
 }
@@ -1,16 +1,19 @@
 package rs.examproject.file_service.config;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class StorageConfig {
 
     @Bean
+    @Primary
     public MinioClient minioClient(
             @Value("${minio.url}") String url,
             @Value("${minio.access-key}") String accessKey,
@@ -22,11 +25,49 @@ public class StorageConfig {
                 .build();
     }
 
+    // Подписывает presigned URL под адрес MinIO, видимый клиентам; регион задан явно, чтобы подпись не ходила в сеть
+    @Bean
+    public MinioClient presignMinioClient(
+            @Value("${minio.public-url:${minio.url}}") String publicUrl,
+            @Value("${minio.access-key}") String accessKey,
+            @Value("${minio.secret-key}") String secretKey
+    ) {
+        return MinioClient.builder()
+                .endpoint(publicUrl)
+                .region("us-east-1")
+                .credentials(accessKey, secretKey)
+                .build();
+    }
+
+    @Bean
+    public MinioMultipartClient minioMultipartClient(
+            @Value("${minio.url}") String url,
+            @Value("${minio.access-key}") String accessKey,
+            @Value("${minio.secret-key}") String secretKey
+    ) {
+        return new MinioMultipartClient(MinioAsyncClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .build());
+    }
+
+    // DLX этих очередей задаёт политика брокера (processing-service DeadLetterPolicies), не аргументы:
+    // так объявление не расходится с уже существующей очередью
     @Bean
     public Queue fileQueue(@Value("${app.file.queue:file.process}") String queueName) {
         return new Queue(queueName, true);
     }
 
+    @Bean
+    public Queue largeFileQueue(@Value("${app.file.large-queue:file.process.large}") String queueName) {
+        return new Queue(queueName, true);
+    }
+
+    @Bean
+    public Queue fileAnalyzedQueue(@Value("${app.file.analyzed-queue:file.analyzed}") String queueName) {
+        return new Queue(queueName, true);
+    }
+
     @Bean
     public Jackson2JsonMessageConverter jackson2JsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -1,12 +1,20 @@
 package rs.examproject.file_service.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import rs.examproject.file_service.dto.BookImportResult;
+import rs.examproject.file_service.dto.BookPage;
 import rs.examproject.file_service.dto.BookRequest;
 import rs.examproject.file_service.dto.BookResponse;
+import rs.examproject.file_service.dto.BookSearchPage;
+import rs.examproject.file_service.service.BookImportService;
 import rs.examproject.file_service.service.BookService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -14,9 +22,11 @@ import java.util.List;
 public class BookController {
 
     private final BookService service;
+    private final BookImportService importService;
 
-    public BookController(BookService service) {
+    public BookController(BookService service, BookImportService importService) {
         this.service = service;
+        this.importService = importService;
     }
 
     @GetMapping
@@ -24,6 +34,29 @@ public class BookController {
         return service.getAll();
     }
 
+    @GetMapping(params = "page")
+    public BookPage page(@RequestParam int page, @RequestParam(defaultValue = "20") int size) {
+        return service.getPage(page, size);
+    }
+
+    @GetMapping(params = "ids")
+    public List<BookResponse> byIds(@RequestParam List<Long> ids) {
+        return service.getByIds(ids);
+    }
+
+    // для больших наборов, которые не влезают в URL
+    @PostMapping("/batch")
+    public List<BookResponse> byIdsBatch(@RequestBody List<Long> ids) {
+        return service.getByIds(ids);
+    }
+
+    @GetMapping("/search")
+    public BookSearchPage search(@RequestParam String q,
+                                 @RequestParam(defaultValue = "0") int page,
+                                 @RequestParam(defaultValue = "20") int size) {
+        return service.search(q, page, size);
+    }
+
     @GetMapping("/{id}")
     public BookResponse one(@PathVariable long id) {
         return service.getById(id);
@@ -34,6 +67,16 @@ public class BookController {
         return service.create(req);
     }
 
+    // тело читается потоком: text/csv с заголовком title,author,isbn или application/x-ndjson
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public BookImportResult importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                        InputStream body) throws IOException {
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            return importService.importNdjson(body);
+        }
+        return importService.importCsv(body);
+    }
+
     @PutMapping("/{id}")
     public BookResponse update(@PathVariable long id, @Valid @RequestBody BookRequest req) {
         return service.update(id, req);
@@ -1,38 +1,176 @@
 package rs.examproject.file_service.controller;
 
-import org.springframework.core.io.InputStreamResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import rs.examproject.file_service.dto.FileListFilter;
 import rs.examproject.file_service.dto.FileMetadataResponse;
+import rs.examproject.file_service.dto.FilePage;
+import rs.examproject.file_service.dto.PresignedCompleteRequest;
+import rs.examproject.file_service.dto.PresignedPostResponse;
+import rs.examproject.file_service.dto.PresignedUrlResponse;
+import rs.examproject.file_service.dto.UploadInitRequest;
+import rs.examproject.file_service.dto.UploadPartInfo;
+import rs.examproject.file_service.dto.UploadSessionResponse;
+import rs.examproject.file_service.model.FileMetadata;
+import rs.examproject.file_service.service.ChunkedUploadService;
 import rs.examproject.file_service.service.FileStorageService;
+import rs.examproject.file_service.service.ObjectDiskCache;
+import rs.examproject.file_service.service.PresignedTransferService;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @RestController
 @RequestMapping("/files")
 public class FileController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final FileStorageService storageService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final PresignedTransferService presignedService;
+    private final ObjectDiskCache diskCache;
+    private final ObjectMapper objectMapper;
 
-    public FileController(FileStorageService storageService) {
+    public FileController(FileStorageService storageService,
+                          ChunkedUploadService chunkedUploadService,
+                          PresignedTransferService presignedService,
+                          ObjectDiskCache diskCache,
+                          ObjectMapper objectMapper) {
         this.storageService = storageService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.presignedService = presignedService;
+        this.diskCache = diskCache;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public FileMetadataResponse upload(@RequestPart("file") MultipartFile file,
                                        @AuthenticationPrincipal Jwt jwt) {
-        String uploader = jwt != null ? jwt.getClaimAsString("preferred_username") : "anonymous";
-        return storageService.store(file, uploader);
+        return storageService.store(file, uploader(jwt));
+    }
+
+    // Без буферизации на диск: тело multipart читается потоком (см. spring.servlet.multipart.resolve-lazily)
+    @PostMapping(value = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public FileMetadataResponse uploadStream(HttpServletRequest request,
+                                             @AuthenticationPrincipal Jwt jwt) {
+        return storageService.storeStreaming(request, uploader(jwt));
+    }
+
+    @PostMapping("/uploads")
+    public UploadSessionResponse initUpload(@Valid @RequestBody UploadInitRequest req,
+                                            @AuthenticationPrincipal Jwt jwt) {
+        return chunkedUploadService.init(req, uploader(jwt));
+    }
+
+    @PutMapping("/uploads/{uploadId}/parts/{partNumber}")
+    public UploadPartInfo uploadPart(@PathVariable String uploadId,
+                                     @PathVariable int partNumber,
+                                     @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                     InputStream body,
+                                     @AuthenticationPrincipal Jwt jwt) {
+        return chunkedUploadService.uploadPart(uploadId, partNumber, contentLength != null ? contentLength : -1,
+                body, uploader(jwt));
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public UploadSessionResponse uploadStatus(@PathVariable String uploadId,
+                                              @AuthenticationPrincipal Jwt jwt) {
+        return chunkedUploadService.status(uploadId, uploader(jwt));
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public FileMetadataResponse completeUpload(@PathVariable String uploadId,
+                                               @AuthenticationPrincipal Jwt jwt) {
+        return chunkedUploadService.complete(uploadId, uploader(jwt));
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId,
+                                            @AuthenticationPrincipal Jwt jwt) {
+        chunkedUploadService.abort(uploadId, uploader(jwt));
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/presigned-uploads")
+    public PresignedPostResponse presignUpload(@Valid @RequestBody UploadInitRequest req,
+                                              @AuthenticationPrincipal Jwt jwt) {
+        return presignedService.issueUpload(req, uploader(jwt));
+    }
+
+    // клиент вызывает после успешного POST по presigned-форме — только тогда появляется FileMetadata и событие
+    @PostMapping("/presigned-uploads/complete")
+    public FileMetadataResponse completePresignedUpload(@Valid @RequestBody PresignedCompleteRequest req,
+                                                        @AuthenticationPrincipal Jwt jwt) {
+        return presignedService.completeUpload(req.objectKey(), uploader(jwt));
+    }
+
+    @GetMapping("/{id}/download-url")
+    public PresignedUrlResponse presignDownload(@PathVariable long id) {
+        return presignedService.issueDownload(id);
     }
 
     @GetMapping
-    public List<FileMetadataResponse> list() {
-        return storageService.list();
+    public FilePage list(@RequestParam(required = false) String cursor,
+                         @RequestParam(defaultValue = "50") int limit,
+                         @RequestParam(required = false) String uploadedBy,
+                         @RequestParam(required = false) String contentType,
+                         @RequestParam(required = false) Instant from,
+                         @RequestParam(required = false) Instant to) {
+        return storageService.list(new FileListFilter(uploadedBy, contentType, from, to), cursor, limit);
+    }
+
+    // NDJSON: по строке на файл, пишется по мере чтения пачек из БД
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String uploadedBy,
+                                                        @RequestParam(required = false) String contentType,
+                                                        @RequestParam(required = false) Instant from,
+                                                        @RequestParam(required = false) Instant to) {
+        FileListFilter filter = new FileListFilter(uploadedBy, contentType, from, to);
+        StreamingResponseBody body = out -> storageService.export(filter, batch -> {
+            try {
+                for (FileMetadataResponse row : batch) {
+                    out.write(objectMapper.writeValueAsBytes(row));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -40,19 +178,88 @@ public class FileController {
         return storageService.getMetadata(id);
     }
 
+    // Range (single/multi) + conditional GET: 304 отвечаем по метаданным из БД, в MinIO не ходим
     @GetMapping("/{id}/download")
-    public ResponseEntity<InputStreamResource> download(@PathVariable long id) {
-        var download = storageService.download(id);
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable long id,
+                                                          @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                          @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                                          WebRequest webRequest,
+                                                          HttpServletRequest request) {
+        FileMetadata meta = storageService.find(id);
+        String etag = storageService.etagOf(meta);
+        long lastModified = meta.getCreatedAt().toEpochMilli();
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        long size = meta.getSize();
+        String contentType = meta.getContentType() != null
+                ? meta.getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
         var headers = new HttpHeaders();
-        headers.setContentDispositionFormData("attachment", download.meta().getOriginalFilename());
-        headers.setContentLength(download.meta().getSize());
-        headers.setContentType(MediaType.parseMediaType(
-                download.meta().getContentType() != null
-                        ? download.meta().getContentType()
-                        : MediaType.APPLICATION_OCTET_STREAM_VALUE));
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(new InputStreamResource(download.stream()));
+        headers.setContentDispositionFormData("attachment", meta.getOriginalFilename());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+
+        List<HttpRange> ranges = range != null && ifRangeMatches(ifRange, etag, lastModified)
+                ? parseRanges(range)
+                : List.of();
+        if (ranges.isEmpty()) {
+            headers.setContentLength(size);
+            headers.setContentType(MediaType.parseMediaType(contentType));
+            return respond(HttpStatus.OK, headers, meta, 0, size, request);
+        }
+
+        List<long[]> requested = new ArrayList<>();
+        for (HttpRange r : ranges) {
+            // getRangeStart не проверяет, что начало внутри объекта ("bytes=200-300" при 100 байтах, "bytes=-0"):
+            // такой диапазон пропускаем, остальные могут быть валидны
+            long start = r.getRangeStart(size);
+            long end = r.getRangeEnd(size);
+            if (start < size && start <= end) {
+                requested.add(new long[]{start, end});
+            }
+        }
+        if (requested.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+        List<long[]> satisfiable = coalesce(requested);
+
+        if (satisfiable.size() == 1) {
+            long start = satisfiable.get(0)[0];
+            long end = satisfiable.get(0)[1];
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange(start, end, size));
+            headers.setContentLength(end - start + 1);
+            headers.setContentType(MediaType.parseMediaType(contentType));
+            return respond(HttpStatus.PARTIAL_CONTENT, headers, meta, start, end - start + 1, request);
+        }
+
+        // multipart/byteranges: каждая часть — из локального кеша или отдельным ranged GET
+        FileChannel cached = diskCache.open(meta);
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        StreamingResponseBody body = out -> {
+            try (FileChannel channel = cached) {
+                for (long[] r : satisfiable) {
+                    String partHeader = "\r\n--" + boundary + "\r\n"
+                            + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                            + HttpHeaders.CONTENT_RANGE + ": " + contentRange(r[0], r[1], size) + "\r\n\r\n";
+                    out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                    if (channel != null) {
+                        writeRange(channel, r[0], r[1] - r[0] + 1, out);
+                    } else {
+                        try (InputStream part = storageService.open(meta, r[0], r[1] - r[0] + 1)) {
+                            part.transferTo(out);
+                        }
+                    }
+                }
+                out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        };
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).body(body);
     }
 
     @DeleteMapping("/{id}")
@@ -60,4 +267,114 @@ public class FileController {
         storageService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    // ошибки запроса из сервисов (неверные части, чужая или неизвестная сессия) — 400, а не 500
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail badRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    private String uploader(Jwt jwt) {
+        return jwt != null ? jwt.getClaimAsString("preferred_username") : "anonymous";
+    }
+
+    // Горячие объекты отдаются с диска: через Tomcat sendfile (zero-copy), если коннектор его поддерживает
+    // (NIO без TLS), по жёсткой ссылке, которую вытеснение не удалит. Иначе — копированием из FileChannel
+    // через буфер в servlet-поток; канал открыт кешем, так что вытесненный файл дочитывается по дескриптору
+    private ResponseEntity<StreamingResponseBody> respond(HttpStatus status, HttpHeaders headers, FileMetadata meta,
+                                                          long start, long length, HttpServletRequest request) {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            Path link = diskCache.linkForSendfile(meta);
+            if (link != null) {
+                request.setAttribute(SENDFILE_FILENAME, link.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, start + length);
+                return ResponseEntity.status(status).headers(headers).build();
+            }
+            // промах: linkForSendfile уже поставил докачку, объект идёт из MinIO
+            InputStream stream = storageService.open(meta, start, status == HttpStatus.OK ? -1 : length);
+            return ResponseEntity.status(status).headers(headers).body(copy(stream));
+        }
+
+        FileChannel channel = diskCache.open(meta);
+        if (channel != null) {
+            return ResponseEntity.status(status).headers(headers).body(out -> {
+                try (channel) {
+                    writeRange(channel, start, length, out);
+                }
+            });
+        }
+
+        InputStream stream = storageService.open(meta, start, status == HttpStatus.OK ? -1 : length);
+        return ResponseEntity.status(status).headers(headers).body(copy(stream));
+    }
+
+    private static void writeRange(FileChannel channel, long start, long length, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent == 0 && position >= channel.size()) {
+                throw new EOFException("Cached object is shorter than expected");
+            }
+            position += sent;
+        }
+    }
+
+    private StreamingResponseBody copy(InputStream stream) {
+        return out -> {
+            try (stream) {
+                stream.transferTo(out);
+            }
+        };
+    }
+
+    // Пересекающиеся и соседние диапазоны склеиваются (RFC 9110 §14.2): иначе "0-99,50-149" отдал бы
+    // байты дважды, а множество мелких кусков — лишние ranged GET и заголовки частей
+    private static List<long[]> coalesce(List<long[]> ranges) {
+        List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(r -> r[0]));
+        List<long[]> merged = new ArrayList<>();
+        long[] current = sorted.get(0).clone();
+        for (long[] r : sorted.subList(1, sorted.size())) {
+            if (r[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], r[1]);
+            } else {
+                merged.add(current);
+                current = r.clone();
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    // Некорректный Range по RFC 9110 игнорируется — отдаём объект целиком
+    private List<HttpRange> parseRanges(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            // If-Range с датой — только точное совпадение (RFC 9110 §13.1.5), а не "не новее"
+            return lastModified / 1000 * 1000 == date;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private String contentRange(long start, long end, long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
 }
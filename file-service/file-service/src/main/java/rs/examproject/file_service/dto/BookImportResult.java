@@ -0,0 +1,7 @@
+package rs.examproject.file_service.dto;
+
+public record BookImportResult(
+        long rows,
+        long elapsedMs,
+        double rowsPerSecond
+) {}
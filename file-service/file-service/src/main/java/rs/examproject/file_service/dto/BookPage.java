@@ -0,0 +1,10 @@
+package rs.examproject.file_service.dto;
+
+import java.util.List;
+
+public record BookPage(
+        List<BookResponse> items,
+        int page,
+        int size,
+        long total
+) {}
@@ -0,0 +1,10 @@
+package rs.examproject.file_service.dto;
+
+import java.util.List;
+
+public record BookSearchPage(
+        List<BookResponse> items,
+        int page,
+        int size,
+        boolean hasNext
+) {}
@@ -0,0 +1,14 @@
+package rs.examproject.file_service.dto;
+
+import java.time.Instant;
+
+public record FileAnalysisResponse(
+        String sha256,
+        String detectedContentType,
+        Long lineCount,
+        Long wordCount,
+        Integer imageWidth,
+        Integer imageHeight,
+        Instant analyzedAt
+) {
+}
@@ -0,0 +1,14 @@
+package rs.examproject.file_service.dto;
+
+public record FileAnalyzedEvent(
+        Long fileId,
+        String objectKey,
+        long bytes,
+        String sha256,
+        String detectedContentType,
+        Long lineCount,
+        Long wordCount,
+        Integer imageWidth,
+        Integer imageHeight
+) {
+}
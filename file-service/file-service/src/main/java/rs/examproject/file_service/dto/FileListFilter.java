@@ -0,0 +1,11 @@
+package rs.examproject.file_service.dto;
+
+import java.time.Instant;
+
+public record FileListFilter(
+        String uploadedBy,
+        String contentType,
+        Instant from,
+        Instant to
+) {
+}
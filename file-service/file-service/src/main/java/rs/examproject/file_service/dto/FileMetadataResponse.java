@@ -9,6 +9,7 @@ public record FileMetadataResponse(
         String contentType,
         Long size,
         String uploadedBy,
-        Instant createdAt
+        Instant createdAt,
+        FileAnalysisResponse analysis
 ) {
 }
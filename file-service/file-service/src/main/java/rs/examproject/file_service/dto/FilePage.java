@@ -0,0 +1,9 @@
+package rs.examproject.file_service.dto;
+
+import java.util.List;
+
+public record FilePage(
+        List<FileMetadataResponse> items,
+        String nextCursor
+) {
+}
@@ -0,0 +1,8 @@
+package rs.examproject.file_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record PresignedCompleteRequest(
+        @NotBlank String objectKey
+) {
+}
@@ -0,0 +1,13 @@
+package rs.examproject.file_service.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+// multipart/form-data POST на url: сначала все fields, файл — последним полем "file"
+public record PresignedPostResponse(
+        String objectKey,
+        String url,
+        Map<String, String> fields,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,10 @@
+package rs.examproject.file_service.dto;
+
+import java.time.Instant;
+
+public record PresignedUrlResponse(
+        String objectKey,
+        String url,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,9 @@
+package rs.examproject.file_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record UploadInitRequest(
+        @NotBlank String filename,
+        String contentType
+) {
+}
@@ -0,0 +1,8 @@
+package rs.examproject.file_service.dto;
+
+public record UploadPartInfo(
+        int partNumber,
+        String etag,
+        long size
+) {
+}
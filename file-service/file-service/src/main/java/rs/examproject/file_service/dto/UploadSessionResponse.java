@@ -0,0 +1,15 @@
+package rs.examproject.file_service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record UploadSessionResponse(
+        String uploadId,
+        String filename,
+        String objectKey,
+        String contentType,
+        List<UploadPartInfo> parts,
+        long uploadedBytes,
+        Instant createdAt
+) {
+}
@@ -5,7 +5,14 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "file_metadata")
+@Table(name = "file_metadata", indexes = {
+        // под keyset-пагинацию (createdAt desc, id desc) и фильтры списка
+        @Index(name = "idx_file_metadata_created_id", columnList = "createdAt DESC, id DESC"),
+        @Index(name = "idx_file_metadata_uploader_created_id", columnList = "uploadedBy, createdAt DESC, id DESC"),
+        @Index(name = "idx_file_metadata_type_created_id", columnList = "contentType, createdAt DESC, id DESC"),
+        // раньше индекс давал UNIQUE по object_key (см. FileMetadataSchema)
+        @Index(name = "idx_file_metadata_object_key", columnList = "objectKey")
+})
 public class FileMetadata {
 
     @Id
@@ -15,7 +22,8 @@ public class FileMetadata {
     @Column(nullable = false)
     private String originalFilename;
 
-    @Column(nullable = false, unique = true)
+    // не unique: при дедупликации несколько записей ссылаются на один объект
+    @Column(nullable = false)
     private String objectKey;
 
     private String contentType;
@@ -25,9 +33,28 @@ public class FileMetadata {
 
     private String uploadedBy;
 
+    // ETag объекта в MinIO — отдаётся клиентам как strong ETag без похода в хранилище
+    private String etag;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
+    // Результаты анализа из processing-service (FileAnalyzedEvent); null, пока анализ не пришёл
+    @Column(length = 64)
+    private String sha256;
+
+    private String detectedContentType;
+
+    private Long lineCount;
+
+    private Long wordCount;
+
+    private Integer imageWidth;
+
+    private Integer imageHeight;
+
+    private Instant analyzedAt;
+
     public Long getId() {
         return id;
     }
@@ -72,7 +99,71 @@ public class FileMetadata {
         this.uploadedBy = uploadedBy;
     }
 
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getDetectedContentType() {
+        return detectedContentType;
+    }
+
+    public void setDetectedContentType(String detectedContentType) {
+        this.detectedContentType = detectedContentType;
+    }
+
+    public Long getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(Long lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    public Long getWordCount() {
+        return wordCount;
+    }
+
+    public void setWordCount(Long wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    public Integer getImageWidth() {
+        return imageWidth;
+    }
+
+    public void setImageWidth(Integer imageWidth) {
+        this.imageWidth = imageWidth;
+    }
+
+    public Integer getImageHeight() {
+        return imageHeight;
+    }
+
+    public void setImageHeight(Integer imageHeight) {
+        this.imageHeight = imageHeight;
+    }
+
+    public Instant getAnalyzedAt() {
+        return analyzedAt;
+    }
+
+    public void setAnalyzedAt(Instant analyzedAt) {
+        this.analyzedAt = analyzedAt;
+    }
 }
@@ -0,0 +1,35 @@
+package rs.examproject.file_service.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(String routingKey, String payload) {
+        this.routingKey = routingKey;
+        this.payload = payload;
+    }
+
+    public Long getId() { return id; }
+    public String getRoutingKey() { return routingKey; }
+    public String getPayload() { return payload; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,49 @@
+package rs.examproject.file_service.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Content-addressed объект в MinIO: один на уникальное содержимое, FileMetadata ссылаются на него по objectKey.
+ */
+@Entity
+@Table(name = "stored_objects")
+public class StoredObject {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false, unique = true)
+    private String objectKey;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,74 @@
+package rs.examproject.file_service.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_parts",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"sessionId", "partNumber"}))
+public class UploadPart {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String sessionId;
+
+    @Column(nullable = false)
+    private Integer partNumber;
+
+    @Column(nullable = false)
+    private String etag;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Instant uploadedAt = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Integer getPartNumber() {
+        return partNumber;
+    }
+
+    public void setPartNumber(Integer partNumber) {
+        this.partNumber = partNumber;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Instant getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(Instant uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+}
@@ -0,0 +1,81 @@
+package rs.examproject.file_service.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false, length = 1024)
+    private String minioUploadId;
+
+    @Column(nullable = false, unique = true)
+    private String objectKey;
+
+    @Column(nullable = false)
+    private String originalFilename;
+
+    private String contentType;
+
+    private String uploadedBy;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getMinioUploadId() {
+        return minioUploadId;
+    }
+
+    public void setMinioUploadId(String minioUploadId) {
+        this.minioUploadId = minioUploadId;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public void setObjectKey(String objectKey) {
+        this.objectKey = objectKey;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(String uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,7 +1,27 @@
 package rs.examproject.file_service.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import rs.examproject.file_service.model.Book;
 
+import java.util.List;
+
 public interface BookRepository extends JpaRepository<Book, Long> {
+
+    // только id для кешируемых страниц: сами книги читаются по books:id:*
+    @Query(value = "SELECT b.id FROM Book b", countQuery = "SELECT count(b) FROM Book b")
+    Page<Long> findIds(Pageable pageable);
+
+    // search_vector и GIN-индекс создаёт BookSearchSchema; query — готовый tsquery вида "war & pea:*"
+    @Query(value = """
+            SELECT b.id, b.title, b.author, b.isbn, b.created_at
+            FROM books b
+            WHERE b.search_vector @@ to_tsquery('simple', :query)
+            ORDER BY ts_rank_cd(b.search_vector, to_tsquery('simple', :query)) DESC, b.id
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<Book> search(@Param("query") String query, @Param("limit") int limit, @Param("offset") int offset);
 }
@@ -1,10 +1,11 @@
 package rs.examproject.file_service.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import rs.examproject.file_service.model.FileMetadata;
 
-import java.util.Optional;
+import java.util.List;
 
-public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long> {
-    Optional<FileMetadata> findByObjectKey(String objectKey);
+public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long>, JpaSpecificationExecutor<FileMetadata> {
+    List<FileMetadata> findByObjectKey(String objectKey);
 }
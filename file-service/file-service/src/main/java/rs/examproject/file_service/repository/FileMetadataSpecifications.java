@@ -0,0 +1,43 @@
+package rs.examproject.file_service.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import rs.examproject.file_service.dto.FileListFilter;
+import rs.examproject.file_service.model.FileMetadata;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class FileMetadataSpecifications {
+
+    private FileMetadataSpecifications() {
+    }
+
+    public static Specification<FileMetadata> matching(FileListFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.uploadedBy() != null) {
+                predicates.add(cb.equal(root.get("uploadedBy"), filter.uploadedBy()));
+            }
+            if (filter.contentType() != null) {
+                predicates.add(cb.equal(root.get("contentType"), filter.contentType()));
+            }
+            if (filter.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.to()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // keyset: строки строго "после" курсора в порядке (createdAt desc, id desc)
+    public static Specification<FileMetadata> before(Instant createdAt, long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id))
+        );
+    }
+}
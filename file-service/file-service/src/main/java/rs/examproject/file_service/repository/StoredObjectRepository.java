@@ -0,0 +1,29 @@
+package rs.examproject.file_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rs.examproject.file_service.model.StoredObject;
+
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+
+    // Атомарно: новая запись с ref_count = 1 или +1 к существующей. 1 в ответе значит, что объект надо записать
+    @Query(value = """
+            INSERT INTO stored_objects (sha256, object_key, size, ref_count, created_at)
+            VALUES (:sha256, :objectKey, :size, 1, now())
+            ON CONFLICT (sha256) DO UPDATE SET ref_count = stored_objects.ref_count + 1
+            RETURNING ref_count
+            """, nativeQuery = true)
+    int acquire(@Param("sha256") String sha256, @Param("objectKey") String objectKey, @Param("size") long size);
+
+    @Modifying
+    @Query(value = "UPDATE stored_objects SET ref_count = ref_count - 1 WHERE object_key = :objectKey",
+            nativeQuery = true)
+    int release(@Param("objectKey") String objectKey);
+
+    @Modifying
+    @Query(value = "DELETE FROM stored_objects WHERE object_key = :objectKey AND ref_count <= 0",
+            nativeQuery = true)
+    int deleteUnreferenced(@Param("objectKey") String objectKey);
+}
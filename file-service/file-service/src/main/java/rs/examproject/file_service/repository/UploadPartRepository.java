@@ -0,0 +1,31 @@
+package rs.examproject.file_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import rs.examproject.file_service.model.UploadPart;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadPartRepository extends JpaRepository<UploadPart, Long> {
+    List<UploadPart> findBySessionIdOrderByPartNumber(String sessionId);
+
+    Optional<UploadPart> findBySessionIdAndPartNumber(String sessionId, Integer partNumber);
+
+    void deleteBySessionId(String sessionId);
+
+    // Повторная и параллельная отправка одной части не упирается в unique (session_id, part_number)
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO upload_parts (session_id, part_number, etag, size, uploaded_at)
+            VALUES (:sessionId, :partNumber, :etag, :size, now())
+            ON CONFLICT (session_id, part_number)
+            DO UPDATE SET etag = EXCLUDED.etag, size = EXCLUDED.size, uploaded_at = EXCLUDED.uploaded_at
+            """, nativeQuery = true)
+    int upsert(@Param("sessionId") String sessionId, @Param("partNumber") int partNumber,
+               @Param("etag") String etag, @Param("size") long size);
+}
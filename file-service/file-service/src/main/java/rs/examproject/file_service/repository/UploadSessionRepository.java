@@ -0,0 +1,25 @@
+package rs.examproject.file_service.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rs.examproject.file_service.model.UploadSession;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByCreatedAtBefore(Instant cutoff);
+
+    @Query("SELECT s.minioUploadId FROM UploadSession s")
+    Set<String> findAllMinioUploadIds();
+
+    // SELECT ... FOR UPDATE: запись части и complete одной сессии выполняются по очереди
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findByIdForUpdate(@Param("id") String id);
+}
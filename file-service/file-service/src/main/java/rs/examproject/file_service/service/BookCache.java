@@ -0,0 +1,497 @@
+package rs.examproject.file_service.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Двухуровневый кеш книг: L1 — ограниченный in-process Caffeine с коротким TTL, L2 — Redis.
+ * Горячее чтение из L1 не ходит в сеть и ничего не десериализует.
+ * Инвалидации рассылаются через Redis pub/sub, чтобы каждая реплика выкинула свою L1-копию.
+ */
+@Component
+public class BookCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BookCache.class);
+    private static final String INVALIDATION_CHANNEL = "books:invalidate";
+    private static final int VERSION_STRIPES = 1024;
+
+    private final RedisTemplate<String, Object> redis;
+    private final StringRedisTemplate pubsub;
+    private final ObjectMapper redisObjectMapper;
+    private final Duration ttl;
+    private final Cache<String, Object> local;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    // Версии инвалидаций по полосам хеша ключа: загрузка, начатая до записи, не пишет результат обратно.
+    // Совпадение полос у разных ключей лишь изредка пропускает запись в кеш
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final boolean staleWhileRevalidate;
+    private final Duration staleWindow;
+    private final Executor refreshExecutor;
+    private final Duration singleFlightWait;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, CacheMeters> meters = new ConcurrentHashMap<>();
+
+    public BookCache(RedisTemplate<String, Object> redis,
+                     StringRedisTemplate pubsub,
+                     ObjectMapper redisObjectMapper,
+                     RedisMessageListenerContainer listenerContainer,
+                     @Value("${books.cache.ttl-seconds:30}") long ttlSeconds,
+                     @Value("${books.cache.local.ttl-seconds:5}") long localTtlSeconds,
+                     @Value("${books.cache.local.max-entries:10000}") long localMaxEntries,
+                     @Value("${books.cache.stale-while-revalidate.enabled:false}") boolean staleWhileRevalidate,
+                     @Value("${books.cache.stale-while-revalidate.stale-seconds:30}") long staleSeconds,
+                     @Qualifier("applicationTaskExecutor") Executor refreshExecutor,
+                     @Value("${books.cache.single-flight-wait-ms:2000}") long singleFlightWaitMs,
+                     MeterRegistry meterRegistry) {
+        this.redis = redis;
+        this.pubsub = pubsub;
+        this.redisObjectMapper = redisObjectMapper;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        // короткий TTL в L1 — страховка на случай потерянного pub/sub сообщения
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.staleWindow = Duration.ofSeconds(staleSeconds);
+        this.refreshExecutor = refreshExecutor;
+        this.singleFlightWait = Duration.ofMillis(singleFlightWaitMs);
+        this.meterRegistry = meterRegistry;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    // L1 -> L2 -> loader; найденное уровнем ниже поднимается в верхние
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, JavaType type, Supplier<T> loader) {
+        CacheMeters m = meters(key);
+        Object hit = local.getIfPresent(key);
+        if (hit != null) {
+            m.localHit.increment();
+            return (T) hit;
+        }
+
+        Object cached = read(key, m);
+        if (cached != null) {
+            m.redisHit.increment();
+            // сериализатор отдаёт Map/List — приводим к нужному типу один раз и кладём в L1
+            T value = redisObjectMapper.convertValue(cached, type);
+            local.put(key, value);
+            return value;
+        }
+
+        m.miss.increment();
+        return singleFlight(key, () -> {
+            long version = version(key);
+            T fresh = m.load.record(loader);
+            if (version(key) == version) {
+                put(key, fresh);
+            }
+            return fresh;
+        });
+    }
+
+    /**
+     * Stale-while-revalidate: в Redis лежит {value, refreshAt} с жёстким TTL = ttl + staleWindow.
+     * После refreshAt значение ещё отдаётся, а обновляет его в фоне только один вызывающий.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getStaleWhileRevalidate(String key, JavaType type, Supplier<T> loader) {
+        if (!staleWhileRevalidate) {
+            return get(key, type, loader);
+        }
+        CacheMeters m = meters(key);
+        Object hit = local.getIfPresent(key);
+        if (hit != null) {
+            m.localHit.increment();
+            return (T) hit;
+        }
+
+        Object cached = read(key, m);
+        // не-Map — значение старого формата без refreshAt, считаем промахом и перезаписываем
+        if (cached instanceof Map<?, ?>) {
+            JavaType envelopeType = redisObjectMapper.getTypeFactory().constructParametricType(SoftValue.class, type);
+            SoftValue<T> soft = redisObjectMapper.convertValue(cached, envelopeType);
+            boolean stale = soft.refreshAt() <= System.currentTimeMillis();
+            (stale ? m.stale : m.redisHit).increment();
+            if (stale) {
+                refreshInBackground(key, loader);
+            }
+            local.put(key, soft.value());
+            return soft.value();
+        }
+
+        m.miss.increment();
+        return singleFlight(key, () -> loadSoft(key, loader));
+    }
+
+    // фоновое обновление ставит только тот, кто занял ключ в inFlight; остальные отдают stale и идут дальше
+    private <T> void refreshInBackground(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, mine) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    runLoad(key, mine, () -> loadSoft(key, loader));
+                } catch (RuntimeException e) {
+                    log.warn("Background refresh of {} failed, stale value stays", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mine.completeExceptionally(e);
+            inFlight.remove(key, mine);
+            log.warn("Background refresh of {} rejected, stale value stays", key);
+        }
+    }
+
+    private <T> T loadSoft(String key, Supplier<T> loader) {
+        CacheMeters m = meters(key);
+        long version = version(key);
+        T fresh = m.load.record(loader);
+        if (version(key) == version) {
+            write(key, new SoftValue<>(fresh, System.currentTimeMillis() + ttl.toMillis()), ttl.plus(staleWindow), m);
+            local.put(key, fresh);
+        }
+        return fresh;
+    }
+
+    // Одновременные промахи по одному ключу ждут один запрос к БД вместо того, чтобы делать каждый свой.
+    // Ожидание ограничено: если загрузка зависла (медленный запрос, пул соединений), ждущий грузит сам
+    @SuppressWarnings("unchecked")
+    private <T> T singleFlight(String key, Supplier<T> load) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            return runLoad(key, mine, load);
+        }
+        try {
+            return (T) running.get(singleFlightWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Waited {} for in-flight load of {}, loading directly", singleFlightWait, key);
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private <T> T runLoad(String key, CompletableFuture<Object> mine, Supplier<T> load) {
+        try {
+            T value = load.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    // после инвалидации новые промахи не присоединяются к загрузке, начатой по старым данным
+    private void invalidate(String key) {
+        versions.incrementAndGet(stripe(key));
+        inFlight.remove(key);
+        local.invalidate(key);
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    /**
+     * Пакетное чтение: L1, затем один MGET по оставшимся ключам, затем loader только для промахов.
+     * Загруженное пишется обратно в Redis одним pipeline. Ключи, которых нет и в loader, в ответ не попадают.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAll(List<String> keys, JavaType type, Function<List<String>, Map<String, T>> loader) {
+        Map<String, T> found = new HashMap<>();
+        if (keys.isEmpty()) {
+            return found;
+        }
+        CacheMeters m = meters(keys.get(0));
+        List<String> remote = new ArrayList<>();
+        for (String key : keys) {
+            Object hit = local.getIfPresent(key);
+            if (hit != null) {
+                m.localHit.increment();
+                found.put(key, (T) hit);
+            } else {
+                remote.add(key);
+            }
+        }
+        if (remote.isEmpty()) {
+            return found;
+        }
+
+        byte[][] rawKeys = remote.stream().map(this::rawKey).toArray(byte[][]::new);
+        List<byte[]> cached = m.redisMget.record(
+                () -> redis.execute((RedisCallback<List<byte[]>>) c -> c.stringCommands().mGet(rawKeys)));
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < remote.size(); i++) {
+            byte[] raw = cached == null ? null : cached.get(i);
+            if (raw == null) {
+                m.miss.increment();
+                missing.add(remote.get(i));
+                continue;
+            }
+            m.redisHit.increment();
+            m.payload.record(raw.length);
+            T converted = redisObjectMapper.convertValue(valueSerializer().deserialize(raw), type);
+            local.put(remote.get(i), converted);
+            found.put(remote.get(i), converted);
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        Map<String, Long> startVersions = new HashMap<>();
+        missing.forEach(key -> startVersions.put(key, version(key)));
+        Map<String, T> loaded = m.load.record(() -> loader.apply(missing));
+        found.putAll(loaded);
+        Map<String, T> current = new HashMap<>();
+        loaded.forEach((key, value) -> {
+            if (startVersions.containsKey(key) && version(key) == startVersions.get(key)) {
+                current.put(key, value);
+            }
+        });
+        if (!current.isEmpty()) {
+            Map<byte[], byte[]> writes = new HashMap<>();
+            current.forEach((key, value) -> {
+                byte[] raw = valueSerializer().serialize(value);
+                m.payload.record(raw.length);
+                writes.put(rawKey(key), raw);
+            });
+            m.redisPipeline.record(() -> redis.executePipelined((RedisCallback<Object>) c -> {
+                writes.forEach((rawKey, raw) -> c.stringCommands().set(rawKey, raw, Expiration.from(ttl), SetOption.upsert()));
+                return null;
+            }));
+            local.putAll(current);
+        }
+        return found;
+    }
+
+    public void put(String key, Object value) {
+        write(key, value, ttl, meters(key));
+        local.put(key, value);
+    }
+
+    // Чтение и запись сырыми байтами: размер сериализованного значения виден без повторной сериализации
+    private Object read(String key, CacheMeters m) {
+        byte[] raw = m.redisGet.record(() -> redis.execute((RedisCallback<byte[]>) c -> c.stringCommands().get(rawKey(key))));
+        if (raw == null) {
+            return null;
+        }
+        m.payload.record(raw.length);
+        return valueSerializer().deserialize(raw);
+    }
+
+    private void write(String key, Object value, Duration expiry, CacheMeters m) {
+        byte[] raw = valueSerializer().serialize(value);
+        m.payload.record(raw.length);
+        m.redisSet.record(() -> redis.execute((RedisCallback<Object>) c ->
+                c.stringCommands().set(rawKey(key), raw, Expiration.from(expiry), SetOption.upsert())));
+    }
+
+    private byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) redis.getValueSerializer();
+    }
+
+    // Запись изменилась: новое значение в L2, а у остальных реплик L1-копия выкидывается
+    public void replace(String key, Object value) {
+        afterCommit(() -> {
+            invalidate(key);
+            put(key, value);
+            pubsub.convertAndSend(INVALIDATION_CHANNEL, key);
+        });
+    }
+
+    public void evict(String... keys) {
+        afterCommit(() -> {
+            for (String key : keys) {
+                invalidate(key);
+                redis.delete(key);
+                pubsub.convertAndSend(INVALIDATION_CHANNEL, key);
+            }
+        });
+    }
+
+    /**
+     * Поколение набора ключей (versioned prefix): читается через L1, поэтому горячий путь без сети.
+     * Запись делает один INCR — старые ключи больше не читаются и доживают свой TTL.
+     */
+    public long generation(String key) {
+        CacheMeters m = meters(key);
+        Object hit = local.getIfPresent(key);
+        if (hit instanceof Long gen) {
+            m.localHit.increment();
+            return gen;
+        }
+        Object stored = read(key, m);
+        (stored != null ? m.redisHit : m.miss).increment();
+        long gen = stored instanceof Number n ? n.longValue() : 0L;
+        local.put(key, gen);
+        return gen;
+    }
+
+    public void bumpGeneration(String key) {
+        afterCommit(() -> {
+            redis.opsForValue().increment(key);
+            invalidate(key);
+            pubsub.convertAndSend(INVALIDATION_CHANNEL, key);
+        });
+    }
+
+    // Инвалидация до коммита дала бы другим репликам перечитать из БД ещё старые данные
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // сообщения о собственных инвалидациях тоже приходят сюда — повторный invalidate безвреден
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    public JavaType type(Class<?> type) {
+        return redisObjectMapper.constructType(type);
+    }
+
+    public JavaType listOf(Class<?> elementType) {
+        return redisObjectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    private CacheMeters meters(String key) {
+        return meters.computeIfAbsent(cacheName(key), name -> new CacheMeters(name, meterRegistry));
+    }
+
+    // Имя кеша для тегов — семейство ключей без id и поколения, чтобы кардинальность оставалась фиксированной
+    static String cacheName(String key) {
+        if (key.startsWith("books:id:")) {
+            return "books:id";
+        }
+        if (key.startsWith("books:gen")) {
+            return "books:gen";
+        }
+        if (key.startsWith("books:v")) {
+            int start = key.indexOf(':', "books:v".length()) + 1;
+            int end = key.indexOf(':', start);
+            if (start > 0) {
+                return "books:" + (end < 0 ? key.substring(start) : key.substring(start, end));
+            }
+        }
+        return "other";
+    }
+
+    /**
+     * books.cache.requests{cache, outcome}: local_hit / redis_hit / stale / miss;
+     * books.cache.redis{cache, operation} и books.cache.load{cache} — время Redis и загрузки из БД;
+     * books.cache.payload{cache} — размер сериализованного значения в байтах.
+     */
+    private static final class CacheMeters {
+        final Counter localHit;
+        final Counter redisHit;
+        final Counter stale;
+        final Counter miss;
+        final Timer redisGet;
+        final Timer redisSet;
+        final Timer redisMget;
+        final Timer redisPipeline;
+        final Timer load;
+        final DistributionSummary payload;
+
+        CacheMeters(String cache, MeterRegistry registry) {
+            localHit = requests(cache, "local_hit", registry);
+            redisHit = requests(cache, "redis_hit", registry);
+            stale = requests(cache, "stale", registry);
+            miss = requests(cache, "miss", registry);
+            redisGet = redis(cache, "get", registry);
+            redisSet = redis(cache, "set", registry);
+            redisMget = redis(cache, "mget", registry);
+            redisPipeline = redis(cache, "pipeline", registry);
+            load = Timer.builder("books.cache.load").tag("cache", cache)
+                    .publishPercentileHistogram().register(registry);
+            payload = DistributionSummary.builder("books.cache.payload").tag("cache", cache).baseUnit("bytes")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(64.0)
+                    .maximumExpectedValue(64.0 * 1024 * 1024)
+                    .register(registry);
+        }
+
+        private static Counter requests(String cache, String outcome, MeterRegistry registry) {
+            return Counter.builder("books.cache.requests").tag("cache", cache).tag("outcome", outcome).register(registry);
+        }
+
+        private static Timer redis(String cache, String operation, MeterRegistry registry) {
+            return Timer.builder("books.cache.redis").tag("cache", cache).tag("operation", operation)
+                    .publishPercentileHistogram().register(registry);
+        }
+    }
+
+    public record SoftValue<T>(T value, long refreshAt) {}
+}
@@ -0,0 +1,199 @@
+package rs.examproject.file_service.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.examproject.file_service.dto.BookImportResult;
+import rs.examproject.file_service.dto.BookRequest;
+import rs.examproject.file_service.model.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Массовый импорт книг из CSV (заголовок title,author,isbn) или NDJSON потоком.
+ * Id берутся из books_seq пачками (pooled), вставки идут JDBC batch'ами (размер — на сессии импорта) по транзакции на пачку,
+ * кеш списков сбрасывается один раз в конце.
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+    private static final long PROGRESS_INTERVAL_MS = 5_000;
+
+    private final EntityManager entityManager;
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public BookImportService(EntityManager entityManager,
+                             BookService bookService,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${books.import.batch-size:1000}") int batchSize) {
+        this.entityManager = entityManager;
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    public BookImportResult importCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return run(List.<BookRequest>of().iterator());
+        }
+        List<String> columns = parseCsvLine(header.toLowerCase(Locale.ROOT)).stream().map(c -> c.replace("\uFEFF", "")).toList();
+        int title = columns.indexOf("title");
+        int author = columns.indexOf("author");
+        int isbn = columns.indexOf("isbn");
+        if (title < 0) {
+            throw new IllegalArgumentException("CSV header must contain 'title'");
+        }
+
+        return run(new Iterator<>() {
+            private String next = readNonBlank(reader);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public BookRequest next() {
+                List<String> fields = parseCsvLine(next);
+                next = readNonBlank(reader);
+                return new BookRequest(field(fields, title), field(fields, author), field(fields, isbn));
+            }
+        });
+    }
+
+    public BookImportResult importNdjson(InputStream in) throws IOException {
+        try (MappingIterator<BookRequest> it = objectMapper.readerFor(BookRequest.class).readValues(in)) {
+            return run(it);
+        }
+    }
+
+    private BookImportResult run(Iterator<BookRequest> source) {
+        long started = System.currentTimeMillis();
+        long lastReport = started;
+        long rows = 0;
+        List<Book> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (source.hasNext()) {
+                BookRequest req = source.next();
+                if (req.title() == null || req.title().isBlank()) {
+                    throw new IllegalArgumentException("Row " + (rows + batch.size() + 1) + ": title is blank");
+                }
+                batch.add(new Book(req.title(), blankToNull(req.author()), blankToNull(req.isbn())));
+                if (batch.size() == batchSize) {
+                    rows += flush(batch);
+                    long now = System.currentTimeMillis();
+                    if (now - lastReport >= PROGRESS_INTERVAL_MS) {
+                        log.info("Book import: {} rows, {} rows/s", rows, Math.round(rate(rows, now - started)));
+                        lastReport = now;
+                    }
+                }
+            }
+            rows += flush(batch);
+        } finally {
+            // уже закоммиченные пачки видны сразу, поэтому сбрасываем и при ошибке
+            if (rows > 0) {
+                bookService.invalidateLists();
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - started;
+        BookImportResult result = new BookImportResult(rows, elapsed, rate(rows, elapsed));
+        log.info("Book import finished: {} rows in {} ms, {} rows/s", rows, elapsed, Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    // persist + flush одной пачкой: Hibernate собирает INSERT'ы в JDBC batch, clear не даёт контексту расти
+    private int flush(List<Book> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = batch.size();
+        tx.executeWithoutResult(status -> {
+            // batch только на сессии импорта: глобальный hibernate.jdbc.batch_size менял бы поведение всех сущностей
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            batch.forEach(entityManager::persist);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        batch.clear();
+        return size;
+    }
+
+    private static double rate(long rows, long elapsedMs) {
+        return elapsedMs == 0 ? rows : rows * 1000.0 / elapsedMs;
+    }
+
+    private static String readNonBlank(BufferedReader reader) {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    // RFC 4180 в пределах одной строки: поля в кавычках, "" внутри кавычек — сама кавычка
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString().trim());
+        return fields;
+    }
+}
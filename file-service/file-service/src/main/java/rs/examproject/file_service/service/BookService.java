@@ -1,58 +1,136 @@
 package rs.examproject.file_service.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import rs.examproject.file_service.dto.BookPage;
 import rs.examproject.file_service.dto.BookRequest;
 import rs.examproject.file_service.dto.BookResponse;
+import rs.examproject.file_service.dto.BookSearchPage;
 import rs.examproject.file_service.model.Book;
 import rs.examproject.file_service.repository.BookRepository;
 
-import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
 @Service
 public class BookService {
 
     private final BookRepository repo;
-    private final RedisTemplate<String, Object> redis;
-    private final Duration ttl;
+    private final BookCache cache;
 
-    public BookService(BookRepository repo,
-                       RedisTemplate<String, Object> redis,
-                       @Value("${books.cache.ttl-seconds:30}") long ttlSeconds) {
+    public BookService(BookRepository repo, BookCache cache) {
         this.repo = repo;
-        this.redis = redis;
-        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.cache = cache;
     }
 
-    private String keyAll() { return "books:all"; }
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+    private static final int MAX_SEARCH_TERMS = 8;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ISBN = Pattern.compile("\\d{9}[\\dX]|\\d{13}");
+
+    // Два поколения. books:gen:ids меняется, только когда меняется набор id (create/delete/импорт): страницы
+    // хранят лишь id и total, а книги берутся по books:id:*, поэтому правка книги страницы не пересчитывает.
+    // books:gen растёт на любую запись: полный список и поиск зависят от содержимого книг
+    private String keyGen() { return "books:gen"; }
+    private String keyIdsGen() { return "books:gen:ids"; }
+    private String keyAll(long gen) { return "books:v" + gen + ":all"; }
+    private String keyPage(long gen, int page, int size) { return "books:v" + gen + ":page:" + page + ":" + size; }
+    private String keySearch(long gen, String query, int page, int size) { return "books:v" + gen + ":search:" + page + ":" + size + ":" + query; }
     private String keyOne(long id) { return "books:id:" + id; }
 
-    // GET -> кешируем список на 30 сек
+    // GET -> кешируем список (L1 + Redis); по истечении TTL отдаём старый, пока один запрос обновляет
     public List<BookResponse> getAll() {
-        Object cached = redis.opsForValue().get(keyAll());
-        if (cached instanceof List<?> list) {
-            @SuppressWarnings("unchecked")
-            List<BookResponse> casted = (List<BookResponse>) list;
-            return casted;
+        return cache.getStaleWhileRevalidate(keyAll(cache.generation(keyGen())), cache.listOf(BookResponse.class),
+                () -> repo.findAll().stream().map(this::toResp).toList());
+    }
+
+    // GET страницы -> в кеше только id и total на каждую (page, size); сами книги одним MGET по books:id:*,
+    // так что правка книги меняет одну запись books:id, а не страницы
+    public BookPage getPage(int page, int size) {
+        int p = Math.max(page, 0);
+        int s = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        PageIds ids = cache.get(keyPage(cache.generation(keyIdsGen()), p, s), cache.type(PageIds.class), () -> {
+            Page<Long> result = repo.findIds(PageRequest.of(p, s, Sort.by("id")));
+            return new PageIds(result.getContent(), result.getTotalElements());
+        });
+        return new BookPage(getByIds(ids.ids()), p, s, ids.total());
+    }
+
+    // Поиск по title/author/isbn через GIN-индекс, по релевантности; страницы кешируются в текущем поколении
+    public BookSearchPage search(String q, int page, int size) {
+        int p = Math.max(page, 0);
+        int s = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        if ((long) p * s > MAX_SEARCH_OFFSET) {
+            throw new IllegalArgumentException("Search results are limited to the first " + MAX_SEARCH_OFFSET);
         }
+        String query = toTsQuery(q);
+        if (query.isEmpty()) {
+            return new BookSearchPage(List.of(), p, s, false);
+        }
+        return cache.get(keySearch(cache.generation(keyGen()), query, p, s), cache.type(BookSearchPage.class), () -> {
+            // на одну строку больше — так узнаём про следующую страницу без count(*) по всем совпадениям
+            List<Book> found = repo.search(query, s + 1, p * s);
+            boolean hasNext = found.size() > s;
+            List<BookResponse> items = found.stream().limit(s).map(this::toResp).toList();
+            return new BookSearchPage(items, p, s, hasNext);
+        });
+    }
 
-        List<BookResponse> fresh = repo.findAll().stream().map(this::toResp).toList();
-        redis.opsForValue().set(keyAll(), fresh, ttl);
-        return fresh;
+    // Из пользовательской строки собираем tsquery только из букв и цифр: термы через AND, последний — префикс
+    private static String toTsQuery(String q) {
+        if (q == null) {
+            return "";
+        }
+        String compact = q.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+        if (ISBN.matcher(compact).matches()) {
+            return compact.toLowerCase(Locale.ROOT);
+        }
+        List<String> terms = NON_WORD.splitAsStream(q.toLowerCase(Locale.ROOT))
+                .filter(t -> !t.isEmpty())
+                .limit(MAX_SEARCH_TERMS)
+                .toList();
+        if (terms.isEmpty()) {
+            return "";
+        }
+        return String.join(" & ", terms) + ":*";
     }
 
-    // GET -> кешируем одну книгу на 30 сек
+    // GET -> кешируем одну книгу (L1 + Redis)
     public BookResponse getById(long id) {
-        Object cached = redis.opsForValue().get(keyOne(id));
-        if (cached instanceof BookResponse br) return br;
+        return cache.get(keyOne(id), cache.type(BookResponse.class), () -> {
+            Book book = repo.findById(id).orElseThrow(() -> new RuntimeException("Book not found: " + id));
+            return toResp(book);
+        });
+    }
 
-        Book book = repo.findById(id).orElseThrow(() -> new RuntimeException("Book not found: " + id));
-        BookResponse fresh = toResp(book);
-        redis.opsForValue().set(keyOne(id), fresh, ttl);
-        return fresh;
+    // Пакетный GET -> один MGET в Redis, промахи одним findAllById; порядок как в запросе, ненайденные пропускаются
+    public List<BookResponse> getByIds(List<Long> ids) {
+        List<Long> unique = ids.stream().distinct().toList();
+        if (unique.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " ids per request");
+        }
+        Map<String, Long> idByKey = new LinkedHashMap<>();
+        unique.forEach(id -> idByKey.put(keyOne(id), id));
+        List<String> keys = List.copyOf(idByKey.keySet());
+        Map<String, BookResponse> byKey = cache.getAll(keys, cache.type(BookResponse.class), missing -> {
+            List<Long> missingIds = missing.stream().map(idByKey::get).toList();
+            Map<String, BookResponse> loaded = new HashMap<>();
+            for (Book book : repo.findAllById(missingIds)) {
+                loaded.put(keyOne(book.getId()), toResp(book));
+            }
+            return loaded;
+        });
+        return keys.stream().map(byKey::get).filter(Objects::nonNull).toList();
     }
 
     // POST -> обычный, но сбрасываем кеш списка
@@ -61,11 +139,11 @@ public class BookService {
         Book b = new Book(req.title(), req.author(), req.isbn());
         Book saved = repo.save(b);
 
-        redis.delete(keyAll()); // список устарел
+        invalidateLists(); // набор id изменился: total и последняя страница устарели
         return toResp(saved);
     }
 
-    // PUT -> обновляем в БД + кладём обновлённую запись в кеш на 30 сек
+    // PUT -> обновляем в БД + кладём обновлённую запись в кеш
     @Transactional
     public BookResponse update(long id, BookRequest req) {
         Book b = repo.findById(id).orElseThrow(() -> new RuntimeException("Book not found: " + id));
@@ -77,8 +155,8 @@ public class BookService {
         Book saved = repo.save(b);
         BookResponse resp = toResp(saved);
 
-        redis.opsForValue().set(keyOne(id), resp, ttl); // кешируем PUT
-        redis.delete(keyAll());                         // список меняется
+        cache.replace(keyOne(id), resp); // кешируем PUT, другие реплики выкидывают свои L1-копии
+        cache.bumpGeneration(keyGen());  // полный список и поиск зависят от полей; страницы id — нет
         return resp;
     }
 
@@ -86,11 +164,20 @@ public class BookService {
     @Transactional
     public void delete(long id) {
         repo.deleteById(id);
-        redis.delete(keyOne(id));
-        redis.delete(keyAll());
+        cache.evict(keyOne(id));
+        invalidateLists(); // страницы после удалённой книги сдвигаются
+    }
+
+    // Изменился набор книг (в т.ч. импорт): списки, поиск и страницы сбрасываются двумя INCR
+    public void invalidateLists() {
+        cache.bumpGeneration(keyGen());
+        cache.bumpGeneration(keyIdsGen());
     }
 
     private BookResponse toResp(Book b) {
         return new BookResponse(b.getId(), b.getTitle(), b.getAuthor(), b.getIsbn(), b.getCreatedAt());
     }
+
+    // кешируемая форма страницы
+    public record PageIds(List<Long> ids, long total) {}
 }
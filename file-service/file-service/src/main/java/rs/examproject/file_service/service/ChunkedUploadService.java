@@ -0,0 +1,308 @@
+package rs.examproject.file_service.service;
+
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.Part;
+import io.minio.messages.Upload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.examproject.file_service.config.MinioMultipartClient;
+import rs.examproject.file_service.dto.FileMetadataResponse;
+import rs.examproject.file_service.dto.UploadInitRequest;
+import rs.examproject.file_service.dto.UploadPartInfo;
+import rs.examproject.file_service.dto.UploadSessionResponse;
+import rs.examproject.file_service.model.UploadPart;
+import rs.examproject.file_service.model.UploadSession;
+import rs.examproject.file_service.repository.UploadPartRepository;
+import rs.examproject.file_service.repository.UploadSessionRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resumable-загрузка поверх MinIO multipart upload: init -> части (в любом порядке и параллельно) -> complete/abort.
+ * Прогресс хранится в upload_sessions/upload_parts, FileMetadata и событие появляются только на complete.
+ * Брошенные сессии и незавершённые multipart upload'ы в MinIO старше session-ttl абортятся по расписанию.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    // ограничения S3: номера частей 1..10000, все части, кроме последней, не меньше 5 МиБ
+    private static final int MAX_PART_NUMBER = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final MinioMultipartClient multipartClient;
+    private final String bucket;
+    private final UploadSessionRepository sessions;
+    private final UploadPartRepository parts;
+    private final FileStorageService storageService;
+    private final long maxPartSize;
+    private final Duration sessionTtl;
+    private final TransactionTemplate tx;
+
+    public ChunkedUploadService(
+            MinioMultipartClient multipartClient,
+            @Value("${minio.bucket}") String bucket,
+            UploadSessionRepository sessions,
+            UploadPartRepository parts,
+            FileStorageService storageService,
+            @Value("${app.file.upload.max-part-size-mb:64}") int maxPartSizeMb,
+            @Value("${app.file.upload.session-ttl-hours:24}") long sessionTtlHours,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.multipartClient = multipartClient;
+        this.bucket = bucket;
+        this.sessions = sessions;
+        this.parts = parts;
+        this.storageService = storageService;
+        this.maxPartSize = maxPartSizeMb * 1024L * 1024;
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional
+    public UploadSessionResponse init(UploadInitRequest req, String uploadedBy) {
+        String contentType = req.contentType() != null ? req.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        String objectKey = storageService.newObjectKey(req.filename());
+
+        String minioUploadId;
+        try {
+            minioUploadId = multipartClient.createUpload(bucket, objectKey, contentType);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot start multipart upload for " + objectKey, e);
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setMinioUploadId(minioUploadId);
+        session.setObjectKey(objectKey);
+        session.setOriginalFilename(req.filename());
+        session.setContentType(contentType);
+        session.setUploadedBy(uploadedBy);
+        return toResponse(sessions.save(session), List.of());
+    }
+
+    // Повторная отправка той же части перезаписывает её — клиент докачивает только то, что не дошло.
+    // Без транзакции: соединение с БД не держится, пока часть идёт в MinIO. Тело спулится во временный
+    // файл — SDK подписывает запрос хешем содержимого, поэтому читает часть дважды
+    public UploadPartInfo uploadPart(String uploadId, int partNumber, long contentLength, InputStream body,
+                                     String uploadedBy) {
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + MAX_PART_NUMBER);
+        }
+        if (contentLength < 0) {
+            throw new IllegalArgumentException("Content-Length is required");
+        }
+        if (contentLength == 0) {
+            throw new IllegalArgumentException("Part is empty");
+        }
+        if (contentLength > maxPartSize) {
+            throw new IllegalArgumentException("Part exceeds " + maxPartSize + " bytes");
+        }
+        UploadSession session = findOwned(uploadId, uploadedBy);
+
+        Path spool = null;
+        String etag;
+        try {
+            spool = Files.createTempFile("upload-part-", ".bin");
+            long copied;
+            try (OutputStream out = Files.newOutputStream(spool)) {
+                copied = body.transferTo(out);
+            }
+            if (copied != contentLength) {
+                throw new IllegalArgumentException("Part has " + copied + " bytes, Content-Length says " + contentLength);
+            }
+            try (RandomAccessFile data = new RandomAccessFile(spool.toFile(), "r")) {
+                etag = multipartClient.uploadPart(bucket, session.getObjectKey(), session.getMinioUploadId(),
+                        partNumber, data, contentLength);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read part " + partNumber, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot upload part " + partNumber + " of " + uploadId, e);
+        } finally {
+            deleteQuietly(spool);
+        }
+
+        // одинаковое содержимое даёт одинаковый ETag, так что гонка повторов одной части безвредна.
+        // Под блокировкой сессии: часть не появится посреди complete и не запишется в уже завершённую сессию
+        tx.executeWithoutResult(status -> {
+            findOwnedForUpdate(uploadId, uploadedBy);
+            parts.upsert(uploadId, partNumber, etag, contentLength);
+        });
+        return new UploadPartInfo(partNumber, etag, contentLength);
+    }
+
+    public UploadSessionResponse status(String uploadId, String uploadedBy) {
+        UploadSession session = findOwned(uploadId, uploadedBy);
+        return toResponse(session, parts.findBySessionIdOrderByPartNumber(uploadId));
+    }
+
+    @Transactional
+    public FileMetadataResponse complete(String uploadId, String uploadedBy) {
+        UploadSession session = findOwnedForUpdate(uploadId, uploadedBy);
+        List<UploadPart> uploaded = parts.findBySessionIdOrderByPartNumber(uploadId);
+        validateParts(uploadId, uploaded);
+
+        Part[] minioParts = uploaded.stream()
+                .map(p -> new Part(p.getPartNumber(), p.getEtag()))
+                .toArray(Part[]::new);
+        String etag;
+        try {
+            etag = multipartClient.completeUpload(bucket, session.getObjectKey(), session.getMinioUploadId(), minioParts);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot complete multipart upload " + uploadId, e);
+        }
+
+        long size = uploaded.stream().mapToLong(UploadPart::getSize).sum();
+        parts.deleteBySessionId(uploadId);
+        sessions.delete(session);
+        return storageService.register(session.getObjectKey(), session.getOriginalFilename(),
+                session.getContentType(), size, etag, session.getUploadedBy());
+    }
+
+    // MinIO отверг бы такой complete с 400 InvalidPart/EntityTooSmall уже после похода в него — проверяем заранее
+    static void validateParts(String uploadId, List<UploadPart> uploaded) {
+        if (uploaded.isEmpty()) {
+            throw new IllegalArgumentException("No parts uploaded for " + uploadId);
+        }
+        for (int i = 0; i < uploaded.size(); i++) {
+            UploadPart part = uploaded.get(i);
+            if (part.getPartNumber() != i + 1) {
+                throw new IllegalArgumentException("Part " + (i + 1) + " of " + uploadId + " is missing");
+            }
+            if (i < uploaded.size() - 1 && part.getSize() < MIN_PART_SIZE) {
+                throw new IllegalArgumentException("Part " + part.getPartNumber() + " of " + uploadId
+                        + " has " + part.getSize() + " bytes; every part but the last must be at least "
+                        + MIN_PART_SIZE + " bytes");
+            }
+        }
+    }
+
+    @Transactional
+    public void abort(String uploadId, String uploadedBy) {
+        UploadSession session = findOwned(uploadId, uploadedBy);
+        try {
+            multipartClient.abortUpload(bucket, session.getObjectKey(), session.getMinioUploadId());
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot abort multipart upload " + uploadId, e);
+        }
+        parts.deleteBySessionId(uploadId);
+        sessions.delete(session);
+    }
+
+    // Сессии старше TTL: клиент их бросил. Абортим multipart в MinIO (иначе части занимают место бесконечно)
+    // и удаляем прогресс; затем — upload'ы в MinIO без сессии (init упал после createUpload)
+    @Scheduled(fixedDelayString = "${app.file.upload.cleanup-interval-ms:3600000}",
+            initialDelayString = "${app.file.upload.cleanup-interval-ms:3600000}")
+    public void abortExpired() {
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        for (UploadSession session : sessions.findByCreatedAtBefore(cutoff)) {
+            try {
+                abortQuietly(session.getObjectKey(), session.getMinioUploadId());
+                tx.executeWithoutResult(status -> {
+                    parts.deleteBySessionId(session.getId());
+                    sessions.delete(session);
+                });
+                log.info("Aborted expired upload {} ({})", session.getId(), session.getObjectKey());
+            } catch (RuntimeException e) {
+                log.warn("Cannot clean up expired upload {}", session.getId(), e);
+            }
+        }
+
+        try {
+            Set<String> known = sessions.findAllMinioUploadIds();
+            String keyMarker = null;
+            String uploadIdMarker = null;
+            ListMultipartUploadsResult page;
+            do {
+                page = multipartClient.listUploads(bucket, keyMarker, uploadIdMarker);
+                for (Upload upload : page.uploads()) {
+                    if (!known.contains(upload.uploadId()) && upload.initiated() != null
+                            && upload.initiated().toInstant().isBefore(cutoff)) {
+                        abortQuietly(upload.objectName(), upload.uploadId());
+                        log.info("Aborted orphan multipart upload of {}", upload.objectName());
+                    }
+                }
+                keyMarker = page.nextKeyMarker();
+                uploadIdMarker = page.nextUploadIdMarker();
+            } while (page.isTruncated());
+        } catch (Exception e) {
+            log.warn("Cannot list incomplete multipart uploads in {}", bucket, e);
+        }
+    }
+
+    // NoSuchUpload — уже абортнут другой репликой или MinIO сам вычистил устаревший upload
+    private void abortQuietly(String objectKey, String minioUploadId) {
+        try {
+            multipartClient.abortUpload(bucket, objectKey, minioUploadId);
+        } catch (Exception e) {
+            log.debug("Abort of {} / {} failed: {}", objectKey, minioUploadId, e.toString());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Cannot delete spooled part {}", path, e);
+        }
+    }
+
+    private UploadSession findOwned(String uploadId, String uploadedBy) {
+        UploadSession session = sessions.findById(uploadId)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found: " + uploadId));
+        if (!Objects.equals(session.getUploadedBy(), uploadedBy)) {
+            throw new IllegalArgumentException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private UploadSession findOwnedForUpdate(String uploadId, String uploadedBy) {
+        UploadSession session = sessions.findByIdForUpdate(uploadId)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found: " + uploadId));
+        if (!Objects.equals(session.getUploadedBy(), uploadedBy)) {
+            throw new IllegalArgumentException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session, List<UploadPart> uploaded) {
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getOriginalFilename(),
+                session.getObjectKey(),
+                session.getContentType(),
+                uploaded.stream().map(this::toInfo).toList(),
+                uploaded.stream().mapToLong(UploadPart::getSize).sum(),
+                session.getCreatedAt()
+        );
+    }
+
+    private UploadPartInfo toInfo(UploadPart part) {
+        return new UploadPartInfo(part.getPartNumber(), part.getEtag(), part.getSize());
+    }
+}
@@ -0,0 +1,106 @@
+package rs.examproject.file_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.examproject.file_service.dto.FileUploadedEvent;
+import rs.examproject.file_service.model.OutboxEvent;
+import rs.examproject.file_service.repository.OutboxEventRepository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Transactional outbox для FileUploadedEvent: событие пишется в outbox_events в той же транзакции,
+ * что и FileMetadata, а фоновый relay отправляет его в RabbitMQ пачками с publisher confirms.
+ * Загрузка не ждёт брокер, а откатившиеся строки событий не порождают.
+ */
+@Component
+public class EventOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(EventOutbox.class);
+
+    private final OutboxEventRepository repository;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+
+    public EventOutbox(OutboxEventRepository repository,
+                       RabbitTemplate rabbitTemplate,
+                       ObjectMapper objectMapper,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${app.outbox.batch-size:100}") int batchSize,
+                       @Value("${app.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.repository = repository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String routingKey, FileUploadedEvent event) {
+        try {
+            repository.save(new OutboxEvent(routingKey, objectMapper.writeValueAsString(event)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize event " + event.id(), e);
+        }
+    }
+
+    // linger: как долго событие может ждать в outbox, пока не наберётся пачка; полные пачки уходят сразу подряд
+    @Scheduled(fixedDelayString = "${app.outbox.linger-ms:200}")
+    public void relay() {
+        try {
+            Integer sent;
+            do {
+                sent = tx.execute(status -> publishBatch());
+            } while (sent != null && sent == batchSize);
+        } catch (Exception e) {
+            log.warn("Outbox relay failed, will retry", e);
+        }
+    }
+
+    // Строки удаляются в той же транзакции только после подтверждения брокером всей пачки;
+    // при ошибке транзакция откатывается и пачка уйдёт повторно (at-least-once)
+    private int publishBatch() {
+        List<OutboxEvent> batch = repository.lockBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        rabbitTemplate.invoke(ops -> {
+            for (OutboxEvent e : batch) {
+                // timestamp = время записи в outbox: по нему consumer считает задержку от загрузки до обработки
+                ops.convertAndSend(e.getRoutingKey(), readEvent(e), m -> {
+                    m.getMessageProperties().setTimestamp(Date.from(e.getCreatedAt()));
+                    return m;
+                });
+            }
+            ops.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+
+        repository.deleteAllInBatch(batch);
+        return batch.size();
+    }
+
+    private FileUploadedEvent readEvent(OutboxEvent e) {
+        try {
+            return objectMapper.readValue(e.getPayload(), FileUploadedEvent.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Corrupted outbox event " + e.getId(), ex);
+        }
+    }
+}
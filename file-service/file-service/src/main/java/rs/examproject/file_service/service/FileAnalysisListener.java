@@ -0,0 +1,46 @@
+package rs.examproject.file_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import rs.examproject.file_service.dto.FileAnalyzedEvent;
+import rs.examproject.file_service.model.FileMetadata;
+import rs.examproject.file_service.repository.FileMetadataRepository;
+
+import java.time.Instant;
+
+/**
+ * Принимает результаты анализа из processing-service и сохраняет их в FileMetadata.
+ * Повторная доставка просто перезаписывает те же значения.
+ */
+@Component
+public class FileAnalysisListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FileAnalysisListener.class);
+
+    private final FileMetadataRepository repository;
+
+    public FileAnalysisListener(FileMetadataRepository repository) {
+        this.repository = repository;
+    }
+
+    @RabbitListener(queues = "${app.file.analyzed-queue:file.analyzed}")
+    @Transactional
+    public void onFileAnalyzed(FileAnalyzedEvent event) {
+        FileMetadata meta = repository.findById(event.fileId()).orElse(null);
+        // файл успели удалить или id переиспользован под другой объект — результат уже не нужен
+        if (meta == null || !meta.getObjectKey().equals(event.objectKey())) {
+            log.debug("Skipping analysis for missing file id={} key={}", event.fileId(), event.objectKey());
+            return;
+        }
+        meta.setSha256(event.sha256());
+        meta.setDetectedContentType(event.detectedContentType());
+        meta.setLineCount(event.lineCount());
+        meta.setWordCount(event.wordCount());
+        meta.setImageWidth(event.imageWidth());
+        meta.setImageHeight(event.imageHeight());
+        meta.setAnalyzedAt(Instant.now());
+    }
+}
@@ -2,48 +2,103 @@ package rs.examproject.file_service.service;
 
 import io.minio.GetObjectArgs;
 import io.minio.BucketExistsArgs;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
 import io.minio.errors.MinioException;
 import jakarta.annotation.PostConstruct;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.tomcat.util.http.fileupload.FileItemIterator;
+import org.apache.tomcat.util.http.fileupload.FileItemStream;
+import org.apache.tomcat.util.http.fileupload.FileUpload;
+import org.apache.tomcat.util.http.fileupload.FileUploadBase;
+import org.apache.tomcat.util.http.fileupload.servlet.ServletRequestContext;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import rs.examproject.file_service.dto.FileAnalysisResponse;
+import rs.examproject.file_service.dto.FileListFilter;
 import rs.examproject.file_service.dto.FileMetadataResponse;
+import rs.examproject.file_service.dto.FilePage;
 import rs.examproject.file_service.dto.FileUploadedEvent;
 import rs.examproject.file_service.model.FileMetadata;
 import rs.examproject.file_service.repository.FileMetadataRepository;
+import rs.examproject.file_service.repository.FileMetadataSpecifications;
+import rs.examproject.file_service.repository.StoredObjectRepository;
+import rs.examproject.file_service.util.CountingInputStream;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class FileStorageService {
 
+    private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final Sort LIST_ORDER = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
     private final MinioClient minioClient;
     private final String bucket;
     private final FileMetadataRepository repository;
-    private final RabbitTemplate rabbitTemplate;
+    private final EventOutbox outbox;
     private final String queueName;
+    private final String largeQueueName;
+    private final long largeThreshold;
+    private final long partSize;
+    private final StoredObjectRepository storedObjects;
+    private final boolean dedupEnabled;
+    private final TransactionTemplate tx;
 
     public FileStorageService(
             MinioClient minioClient,
             @Value("${minio.bucket}") String bucket,
             FileMetadataRepository repository,
-            RabbitTemplate rabbitTemplate,
-            @Value("${app.file.queue:file.process}") String queueName
+            EventOutbox outbox,
+            @Value("${app.file.queue:file.process}") String queueName,
+            @Value("${app.file.large-queue:file.process.large}") String largeQueueName,
+            @Value("${app.file.large-threshold-mb:64}") long largeThresholdMb,
+            @Value("${app.file.upload.part-size-mb:16}") long partSizeMb,
+            StoredObjectRepository storedObjects,
+            @Value("${app.file.dedup.enabled:false}") boolean dedupEnabled,
+            PlatformTransactionManager transactionManager
     ) {
         this.minioClient = minioClient;
         this.bucket = bucket;
         this.repository = repository;
-        this.rabbitTemplate = rabbitTemplate;
+        this.outbox = outbox;
         this.queueName = queueName;
+        this.largeQueueName = largeQueueName;
+        this.largeThreshold = largeThresholdMb * 1024 * 1024;
+        // MinIO не принимает части меньше 5 МБ; больше partSize в памяти на одну загрузку не держим
+        this.partSize = Math.max(partSizeMb, 5) * 1024 * 1024;
+        this.storedObjects = storedObjects;
+        this.dedupEnabled = dedupEnabled;
+        this.tx = new TransactionTemplate(transactionManager);
     }
 
     @PostConstruct
@@ -58,42 +113,207 @@ public class FileStorageService {
         }
     }
 
-    @Transactional
+    // Без общей транзакции: пока байты идут в MinIO, соединение с БД не занято. Метаданные и outbox —
+    // короткой транзакцией в register/registerContent уже после записи объекта
     public FileMetadataResponse store(MultipartFile file, String uploadedBy) {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
 
-        String contentType = file.getContentType() != null ? file.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
-        String objectKey = UUID.randomUUID() + "/" + sanitize(file.getOriginalFilename());
+        if (dedupEnabled) {
+            // файл уже лежит у servlet-резолвера, поэтому хешируем его заранее и дубликат в MinIO не пишем вовсе
+            String contentType = contentTypeOrDefault(file.getContentType());
+            String digest;
+            try (InputStream is = file.getInputStream()) {
+                digest = sha256(is);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to hash file", e);
+            }
+            return registerContent(digest, file.getSize(), file.getOriginalFilename(), contentType, uploadedBy,
+                    objectKey -> {
+                        try (InputStream is = file.getInputStream()) {
+                            putObject(objectKey, is, file.getSize(), contentType);
+                        }
+                    });
+        }
 
         try (InputStream is = file.getInputStream()) {
-            minioClient.putObject(PutObjectArgs.builder()
+            return putAndSave(is, file.getOriginalFilename(), file.getContentType(), file.getSize(), uploadedBy);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to store file", e);
+        }
+    }
+
+    // Потоковая загрузка: multipart разбирается по мере чтения, байты сразу уходят в MinIO частями по partSize.
+    // Парсер — из встроенного Tomcat (тот же, что у его multipart-резолвера): стабильная версия приходит
+    // с Boot, отдельная commons-fileupload2 для jakarta есть только в milestone-сборках
+    public FileMetadataResponse storeStreaming(HttpServletRequest request, String uploadedBy) {
+        String requestType = request.getContentType();
+        if (requestType == null || !requestType.toLowerCase(Locale.ROOT).startsWith(FileUploadBase.MULTIPART)) {
+            throw new IllegalArgumentException("Request is not multipart");
+        }
+
+        try {
+            FileItemIterator items = new FileUpload().getItemIterator(new ServletRequestContext(request));
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (item.isFormField() || !"file".equals(item.getFieldName())) {
+                    continue;
+                }
+                try (InputStream is = item.openStream()) {
+                    return putAndSave(is, item.getName(), item.getContentType(), -1, uploadedBy);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read multipart stream", e);
+        }
+        throw new IllegalArgumentException("Part 'file' is missing");
+    }
+
+    private FileMetadataResponse putAndSave(InputStream source, String originalFilename, String contentType,
+                                            long size, String uploadedBy) {
+        contentType = contentTypeOrDefault(contentType);
+        if (dedupEnabled) {
+            return putDeduplicated(source, originalFilename, contentType, size, uploadedBy);
+        }
+
+        String objectKey = newObjectKey(originalFilename);
+        CountingInputStream is = new CountingInputStream(source);
+        ObjectWriteResponse written = putObject(objectKey, is, size, contentType);
+        return register(objectKey, originalFilename, contentType, size >= 0 ? size : is.getCount(),
+                written.etag(), uploadedBy);
+    }
+
+    // Хеш известен только после чтения потока: пишем во временный ключ и, если содержимое новое,
+    // переносим его под sha256-ключ server-side копированием (байты через JVM второй раз не идут)
+    private FileMetadataResponse putDeduplicated(InputStream source, String originalFilename, String contentType,
+                                                 long size, String uploadedBy) {
+        String stagingKey = "staging/" + UUID.randomUUID();
+        MessageDigest md = newSha256();
+        CountingInputStream is = new CountingInputStream(new DigestInputStream(source, md));
+        putObject(stagingKey, is, size, contentType);
+
+        try {
+            return registerContent(HexFormat.of().formatHex(md.digest()), is.getCount(), originalFilename,
+                    contentType, uploadedBy, objectKey -> minioClient.composeObject(ComposeObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(objectKey)
+                            .headers(Map.of("Content-Type", contentType))
+                            .sources(List.of(ComposeSource.builder().bucket(bucket).object(stagingKey).build()))
+                            .build()));
+        } finally {
+            removeQuietly(stagingKey);
+        }
+    }
+
+    // Одна транзакция на acquire, запись и метаданные: строка stored_objects заблокирована, пока первый
+    // загрузивший пишет объект, так что второй не сошлётся на ещё не записанный ключ, а ошибка записи
+    // откатывает счётчик. Запись здесь — server-side compose из staging или файл, уже принятый резолвером
+    private FileMetadataResponse registerContent(String digest, long size, String originalFilename,
+                                                 String contentType, String uploadedBy, ObjectWriter writer) {
+        return tx.execute(status -> {
+            String objectKey = "sha256/" + digest;
+            if (storedObjects.acquire(digest, objectKey, size) == 1) {
+                try {
+                    writer.write(objectKey);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to store file", e);
+                }
+            }
+            return register(objectKey, originalFilename, contentType, size, digest, uploadedBy);
+        });
+    }
+
+    private ObjectWriteResponse putObject(String objectKey, InputStream is, long size, String contentType) {
+        try {
+            return minioClient.putObject(PutObjectArgs.builder()
                     .bucket(bucket)
                     .object(objectKey)
                     .contentType(contentType)
-                    .stream(is, file.getSize(), -1)
+                    .stream(is, size, partSize)
                     .build());
         } catch (MinioException e) {
             throw new IllegalStateException("MinIO error while storing file", e);
         } catch (Exception e) {
             throw new IllegalStateException("Failed to store file", e);
         }
+    }
+
+    // Объект уже лежит в MinIO — сохраняем метаданные и только после этого шлём событие.
+    // TransactionTemplate, а не @Transactional: вызывается и изнутри класса, где прокси не участвует;
+    // у вызывающего с транзакцией (complete chunked-загрузки) присоединяется к ней
+    public FileMetadataResponse register(String objectKey, String originalFilename, String contentType,
+                                         long size, String etag, String uploadedBy) {
+        return tx.execute(status -> {
+            FileMetadata meta = new FileMetadata();
+            meta.setOriginalFilename(originalFilename != null ? originalFilename : sanitize(null));
+            meta.setObjectKey(objectKey);
+            meta.setContentType(contentType);
+            meta.setSize(size);
+            meta.setEtag(etag != null ? etag.replace("\"", "") : null);
+            meta.setUploadedBy(uploadedBy);
 
-        FileMetadata meta = new FileMetadata();
-        meta.setOriginalFilename(file.getOriginalFilename());
-        meta.setObjectKey(objectKey);
-        meta.setContentType(contentType);
-        meta.setSize(file.getSize());
-        meta.setUploadedBy(uploadedBy);
+            FileMetadata saved = repository.save(meta);
+            publishEvent(saved);
+            return toResponse(saved);
+        });
+    }
+
+    String newObjectKey(String originalFilename) {
+        return UUID.randomUUID() + "/" + sanitize(originalFilename);
+    }
+
+    public FilePage list(FileListFilter filter, String cursor, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        List<FileMetadata> rows = fetchPage(filter, decodeCursor(cursor), size + 1);
+        if (rows.size() <= size) {
+            return new FilePage(rows.stream().map(this::toResponse).toList(), null);
+        }
+        List<FileMetadata> page = rows.subList(0, size);
+        return new FilePage(page.stream().map(this::toResponse).toList(), encodeCursor(page.get(size - 1)));
+    }
 
-        FileMetadata saved = repository.save(meta);
-        publishEvent(saved);
-        return toResponse(saved);
+    // Выгрузка всего списка пачками по keyset — память не зависит от числа строк
+    public void export(FileListFilter filter, Consumer<List<FileMetadataResponse>> batchSink) {
+        Cursor cursor = null;
+        while (true) {
+            List<FileMetadata> rows = fetchPage(filter, cursor, EXPORT_BATCH_SIZE);
+            if (rows.isEmpty()) {
+                return;
+            }
+            batchSink.accept(rows.stream().map(this::toResponse).toList());
+            if (rows.size() < EXPORT_BATCH_SIZE) {
+                return;
+            }
+            FileMetadata last = rows.get(rows.size() - 1);
+            cursor = new Cursor(last.getCreatedAt(), last.getId());
+        }
     }
 
-    public List<FileMetadataResponse> list() {
-        return repository.findAll().stream().map(this::toResponse).toList();
+    private List<FileMetadata> fetchPage(FileListFilter filter, Cursor cursor, int limit) {
+        Specification<FileMetadata> spec = FileMetadataSpecifications.matching(filter);
+        if (cursor != null) {
+            spec = spec.and(FileMetadataSpecifications.before(cursor.createdAt(), cursor.id()));
+        }
+        return repository.findBy(spec, q -> q.sortBy(LIST_ORDER).limit(limit).all());
+    }
+
+    private String encodeCursor(FileMetadata last) {
+        String raw = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Cursor(Instant.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
     }
 
     public FileMetadataResponse getMetadata(long id) {
@@ -101,25 +321,55 @@ public class FileStorageService {
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + id));
     }
 
-    public FileDownload download(long id) {
-        FileMetadata meta = repository.findById(id)
+    public FileMetadata find(long id) {
+        return repository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + id));
+    }
+
+    public FileDownload download(long id) {
+        FileMetadata meta = find(id);
+        return new FileDownload(meta, open(meta, 0, -1));
+    }
+
+    // length < 0 — до конца объекта; иначе ranged GET, MinIO отдаёт только запрошенные байты
+    public InputStream open(FileMetadata meta, long offset, long length) {
+        GetObjectArgs.Builder args = GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(meta.getObjectKey());
+        if (offset > 0 || length >= 0) {
+            args.offset(offset);
+        }
+        if (length >= 0) {
+            args.length(length);
+        }
 
         try {
-            InputStream stream = minioClient.getObject(GetObjectArgs.builder()
-                    .bucket(bucket)
-                    .object(meta.getObjectKey())
-                    .build());
-            return new FileDownload(meta, stream);
+            return minioClient.getObject(args.build());
         } catch (Exception e) {
             throw new IllegalStateException("Cannot download file " + meta.getObjectKey(), e);
         }
     }
 
+    // Объекты неизменяемы, поэтому ETag из MinIO (или id+createdAt для старых записей) — strong validator
+    public String etagOf(FileMetadata meta) {
+        String tag = meta.getEtag() != null
+                ? meta.getEtag()
+                : meta.getId() + "-" + meta.getCreatedAt().toEpochMilli();
+        return "\"" + tag + "\"";
+    }
+
     @Transactional
     public void delete(long id) {
-        FileMetadata meta = repository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("File not found: " + id));
+        FileMetadata meta = find(id);
+        repository.delete(meta);
+
+        // content-addressed объект удаляем только вместе с последней ссылкой.
+        // Chunked- и presigned-загрузки дедупликацию обходят (байты не проходят через хеширование в JVM):
+        // у их объектов UUID-ключ, строки в stored_objects нет и ровно одна FileMetadata — release вернёт 0, удаляем сразу
+        if (storedObjects.release(meta.getObjectKey()) > 0
+                && storedObjects.deleteUnreferenced(meta.getObjectKey()) == 0) {
+            return;
+        }
 
         try {
             minioClient.removeObject(RemoveObjectArgs.builder()
@@ -129,8 +379,36 @@ public class FileStorageService {
         } catch (Exception e) {
             throw new IllegalStateException("Cannot delete file from MinIO: " + meta.getObjectKey(), e);
         }
+    }
+
+    private void removeQuietly(String objectKey) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(objectKey).build());
+        } catch (Exception e) {
+            log.warn("Cannot remove staging object {}", objectKey, e);
+        }
+    }
 
-        repository.deleteById(id);
+    private String sha256(InputStream is) throws IOException {
+        MessageDigest md = newSha256();
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            md.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String contentTypeOrDefault(String contentType) {
+        return contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
     }
 
     private void publishEvent(FileMetadata meta) {
@@ -142,7 +420,9 @@ public class FileStorageService {
                 meta.getSize(),
                 meta.getUploadedBy()
         );
-        rabbitTemplate.convertAndSend(queueName, event);
+        // крупные файлы идут в свою очередь со своими consumer'ами, чтобы не задерживать мелкие
+        boolean large = meta.getSize() != null && meta.getSize() >= largeThreshold;
+        outbox.enqueue(large ? largeQueueName : queueName, event);
     }
 
     private FileMetadataResponse toResponse(FileMetadata meta) {
@@ -153,7 +433,16 @@ public class FileStorageService {
                 meta.getContentType(),
                 meta.getSize(),
                 meta.getUploadedBy(),
-                meta.getCreatedAt()
+                meta.getCreatedAt(),
+                meta.getAnalyzedAt() == null ? null : new FileAnalysisResponse(
+                        meta.getSha256(),
+                        meta.getDetectedContentType(),
+                        meta.getLineCount(),
+                        meta.getWordCount(),
+                        meta.getImageWidth(),
+                        meta.getImageHeight(),
+                        meta.getAnalyzedAt()
+                )
         );
     }
 
@@ -165,4 +454,11 @@ public class FileStorageService {
     }
 
     public record FileDownload(FileMetadata meta, InputStream stream) {}
+
+    private record Cursor(Instant createdAt, long id) {}
+
+    @FunctionalInterface
+    private interface ObjectWriter {
+        void write(String objectKey) throws Exception;
+    }
 }
@@ -0,0 +1,292 @@
+package rs.examproject.file_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rs.examproject.file_service.model.FileMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-through LRU-кеш объектов MinIO на локальном диске, ключ — objectKey.
+ * Мелкие объекты допускаются сразу, крупные — только при повторном запросе (ghost-список),
+ * чтобы одноразовые большие скачивания не вымывали горячие файлы.
+ * Ключи объектов не переиспользуются под другое содержимое (UUID или sha256), поэтому инвалидация не нужна.
+ * Промах не задерживает ответ: объект отдаётся из MinIO, а копия на диск докачивается в фоне.
+ * Для Tomcat sendfile отдаётся жёсткая ссылка на файл записи: Tomcat открывает путь уже после возврата
+ * из контроллера, и вытеснение между этими моментами не должно удалить последнее имя файла.
+ */
+@Component
+public class ObjectDiskCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ObjectDiskCache.class);
+    private static final int GHOST_ENTRIES = 10_000;
+    private static final int FILL_QUEUE = 64;
+    private static final String SENDFILE_SUFFIX = ".sendfile";
+
+    private final FileStorageService storageService;
+    private final boolean enabled;
+    private final Path dir;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final long admitImmediatelyBytes;
+
+    // accessOrder = true: итерация идёт от давно не читанных к свежим
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Boolean> ghosts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > GHOST_ENTRIES;
+        }
+    };
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    // ссылка -> время создания; после открытия Tomcat'ом она не нужна, уборка удаляет старше sendfileGrace
+    private final ConcurrentHashMap<Path, Long> sendfileLinks = new ConcurrentHashMap<>();
+    private final long sendfileGraceMillis;
+    private final ThreadPoolExecutor fillExecutor;
+    private long usedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter rejected;
+
+    public ObjectDiskCache(
+            FileStorageService storageService,
+            MeterRegistry meterRegistry,
+            @Value("${app.file.cache.enabled:false}") boolean enabled,
+            @Value("${app.file.cache.dir:${java.io.tmpdir}/file-service-cache}") String dir,
+            @Value("${app.file.cache.max-size-mb:2048}") long maxSizeMb,
+            @Value("${app.file.cache.max-object-size-mb:256}") long maxObjectSizeMb,
+            @Value("${app.file.cache.admit-immediately-size-mb:8}") long admitImmediatelySizeMb,
+            @Value("${app.file.cache.fill-threads:2}") int fillThreads,
+            @Value("${app.file.cache.sendfile-grace-seconds:60}") long sendfileGraceSeconds
+    ) throws IOException {
+        this.storageService = storageService;
+        this.enabled = enabled;
+        this.dir = Path.of(dir);
+        this.maxBytes = maxSizeMb * 1024 * 1024;
+        this.maxObjectBytes = Math.min(maxObjectSizeMb * 1024 * 1024, maxBytes);
+        this.admitImmediatelyBytes = admitImmediatelySizeMb * 1024 * 1024;
+        this.sendfileGraceMillis = TimeUnit.SECONDS.toMillis(sendfileGraceSeconds);
+        AtomicInteger counter = new AtomicInteger();
+        // очередь ограничена: при всплеске промахов лишние заполнения просто не запускаются
+        this.fillExecutor = new ThreadPoolExecutor(fillThreads, fillThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(FILL_QUEUE), r -> {
+                    Thread t = new Thread(r, "file-cache-fill-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        this.hits = Counter.builder("file.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("file.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("file.cache.evictions").register(meterRegistry);
+        this.rejected = Counter.builder("file.cache.admission.rejected").register(meterRegistry);
+        Gauge.builder("file.cache.size", this, c -> c.usedBytes()).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("file.cache.entries", this, c -> c.entryCount()).register(meterRegistry);
+
+        if (enabled) {
+            // индекс живёт в памяти, поэтому файлы от прошлого запуска просто выбрасываем
+            Files.createDirectories(this.dir);
+            try (var files = Files.list(this.dir)) {
+                files.forEach(this::deleteQuietly);
+            }
+        }
+    }
+
+    /**
+     * Открытый канал к локальной копии объекта или null, если копии нет — тогда вызывающий читает из MinIO,
+     * а объект, прошедший допуск, докачивается на диск в фоне. Канал открывается под тем же локом,
+     * что и вытеснение, поэтому вытесненный позже файл дочитывается по уже открытому дескриптору.
+     */
+    public FileChannel open(FileMetadata meta) {
+        if (!enabled) {
+            return null;
+        }
+        String key = meta.getObjectKey();
+        synchronized (this) {
+            if (entries.get(key) != null) {
+                try {
+                    FileChannel channel = FileChannel.open(pathFor(key), StandardOpenOption.READ);
+                    hits.increment();
+                    return channel;
+                } catch (IOException e) {
+                    // файл пропал с диска мимо кеша — забываем запись, объект перекачается при следующем промахе
+                    usedBytes -= entries.remove(key);
+                    log.warn("Cached object {} is unreadable, dropping it", key, e);
+                }
+            }
+        }
+        miss(key, meta);
+        return null;
+    }
+
+    /**
+     * Путь для Tomcat sendfile (zero-copy из page cache в сокет) или null при промахе.
+     * Ссылка создаётся под локом вытеснения и переживает удаление записи, пока её не уберёт sweepSendfileLinks.
+     */
+    public Path linkForSendfile(FileMetadata meta) {
+        if (!enabled) {
+            return null;
+        }
+        String key = meta.getObjectKey();
+        synchronized (this) {
+            if (entries.get(key) != null) {
+                Path link = dir.resolve(UUID.randomUUID() + SENDFILE_SUFFIX);
+                try {
+                    Files.createLink(link, pathFor(key));
+                    sendfileLinks.put(link, System.currentTimeMillis());
+                    hits.increment();
+                    return link;
+                } catch (IOException | UnsupportedOperationException e) {
+                    // ФС без жёстких ссылок — вызывающий отдаст объект через open
+                    log.debug("Cannot link cached object {} for sendfile: {}", key, e.toString());
+                    return null;
+                }
+            }
+        }
+        miss(key, meta);
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.file.cache.sendfile-grace-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void sweepSendfileLinks() {
+        long cutoff = System.currentTimeMillis() - sendfileGraceMillis;
+        sendfileLinks.entrySet().removeIf(link -> {
+            if (link.getValue() > cutoff) {
+                return false;
+            }
+            deleteQuietly(link.getKey());
+            return true;
+        });
+    }
+
+    private void miss(String key, FileMetadata meta) {
+        misses.increment();
+        if (admit(key, meta.getSize()) && loading.add(key)) {
+            try {
+                fillExecutor.execute(() -> {
+                    try {
+                        fill(key, meta);
+                    } finally {
+                        loading.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                loading.remove(key);
+            }
+        }
+    }
+
+    private synchronized boolean admit(String key, Long size) {
+        if (size == null || size > maxObjectBytes) {
+            rejected.increment();
+            return false;
+        }
+        if (size <= admitImmediatelyBytes || ghosts.remove(key) != null) {
+            return true;
+        }
+        ghosts.put(key, Boolean.TRUE);
+        rejected.increment();
+        return false;
+    }
+
+    private void fill(String key, FileMetadata meta) {
+        Path tmp = dir.resolve(UUID.randomUUID() + ".part");
+        long size;
+        try (InputStream in = storageService.open(meta, 0, -1)) {
+            size = Files.copy(in, tmp);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tmp);
+            log.warn("Cannot cache object {}", key, e);
+            return;
+        }
+
+        synchronized (this) {
+            // прежняя копия того же ключа (если успела появиться) не должна считаться дважды
+            Long previous = entries.remove(key);
+            if (previous != null) {
+                usedBytes -= previous;
+            }
+            evictFor(size);
+            try {
+                Files.move(tmp, pathFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                deleteQuietly(tmp);
+                log.warn("Cannot cache object {}", key, e);
+                return;
+            }
+            entries.put(key, size);
+            usedBytes += size;
+        }
+    }
+
+    // удаляет только файл; уже открытые каналы (см. open) дочитывают его по дескриптору
+    private void evictFor(long incoming) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (usedBytes + incoming > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            usedBytes -= eldest.getValue();
+            deleteQuietly(pathFor(eldest.getKey()));
+            evictions.increment();
+        }
+    }
+
+    private Path pathFor(String objectKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectKey.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Cannot delete cache file {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fillExecutor.shutdownNow();
+    }
+
+    private synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private synchronized int entryCount() {
+        return entries.size();
+    }
+}
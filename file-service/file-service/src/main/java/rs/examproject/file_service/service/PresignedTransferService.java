@@ -0,0 +1,187 @@
+package rs.examproject.file_service.service;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import rs.examproject.file_service.dto.FileMetadataResponse;
+import rs.examproject.file_service.dto.PresignedPostResponse;
+import rs.examproject.file_service.dto.PresignedUrlResponse;
+import rs.examproject.file_service.dto.UploadInitRequest;
+import rs.examproject.file_service.model.FileMetadata;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Прямые загрузки/скачивания через presigned URL: байты идут клиент <-> MinIO, JVM их не видит.
+ * Загрузка — presigned POST: политика фиксирует ключ и content-length-range, так что MinIO сам отвергает
+ * слишком большой файл во время загрузки. Проверка размера на complete остаётся как страховка.
+ * Выданный ключ запоминается в Redis до истечения URL, чтобы complete принимал только свои объекты.
+ * complete забирает ключ атомарно (GETDEL): повторный или параллельный вызов не создаст второй FileMetadata на тот же объект.
+ */
+@Service
+public class PresignedTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(PresignedTransferService.class);
+
+    private final MinioClient minioClient;
+    private final MinioClient presignClient;
+    private final String bucket;
+    private final String uploadUrl;
+    private final RedisTemplate<String, Object> redis;
+    private final FileStorageService storageService;
+    private final int expirySeconds;
+    private final long maxSizeBytes;
+
+    public PresignedTransferService(
+            MinioClient minioClient,
+            @Qualifier("presignMinioClient") MinioClient presignClient,
+            @Value("${minio.bucket}") String bucket,
+            @Value("${minio.public-url:${minio.url}}") String publicUrl,
+            RedisTemplate<String, Object> redis,
+            FileStorageService storageService,
+            @Value("${app.file.presign.expiry-seconds:900}") int expirySeconds,
+            @Value("${app.file.presign.max-size-mb:1024}") long maxSizeMb
+    ) {
+        this.minioClient = minioClient;
+        this.presignClient = presignClient;
+        this.bucket = bucket;
+        // POST-загрузка идёт на сам бакет (path-style), адрес тот же, под который подписывает presignClient
+        this.uploadUrl = publicUrl.replaceAll("/+$", "") + "/" + bucket;
+        this.redis = redis;
+        this.storageService = storageService;
+        this.expirySeconds = expirySeconds;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    private String keyPending(String objectKey) { return "files:presigned:" + objectKey; }
+
+    public PresignedPostResponse issueUpload(UploadInitRequest req, String uploadedBy) {
+        String objectKey = storageService.newObjectKey(req.filename());
+        Instant expiresAt = Instant.now().plusSeconds(expirySeconds);
+        Map<String, String> fields = presignPost(objectKey, req.contentType(), expiresAt);
+
+        // даём запас сверх срока подписи: POST может закончиться позже, чем истечёт политика.
+        // HashMap, а не Map.of: uploadedBy (preferred_username) в токене может отсутствовать
+        Instant pendingUntil = Instant.now().plusSeconds(expirySeconds * 2L);
+        Map<String, Object> pending = new HashMap<>();
+        pending.put("uploadedBy", uploadedBy);
+        pending.put("filename", req.filename());
+        pending.put("until", pendingUntil.getEpochSecond());
+        redis.opsForValue().set(keyPending(objectKey), pending, Duration.ofSeconds(expirySeconds * 2L));
+        return new PresignedPostResponse(objectKey, uploadUrl, fields, expiresAt);
+    }
+
+    // политика: ровно этот ключ, размер 1..max-size-mb, и Content-Type, если клиент его заявил
+    private Map<String, String> presignPost(String objectKey, String contentType, Instant expiresAt) {
+        PostPolicy policy = new PostPolicy(bucket, ZonedDateTime.ofInstant(expiresAt, ZoneOffset.UTC));
+        policy.addEqualsCondition("key", objectKey);
+        policy.addContentLengthRangeCondition(1, maxSizeBytes);
+        if (contentType != null && !contentType.isBlank()) {
+            policy.addEqualsCondition("Content-Type", contentType);
+        }
+        try {
+            Map<String, String> fields = new HashMap<>(presignClient.getPresignedPostFormData(policy));
+            fields.put("key", objectKey);
+            if (contentType != null && !contentType.isBlank()) {
+                fields.put("Content-Type", contentType);
+            }
+            return fields;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot presign POST for " + objectKey, e);
+        }
+    }
+
+    public FileMetadataResponse completeUpload(String objectKey, String uploadedBy) {
+        Object pending = redis.opsForValue().getAndDelete(keyPending(objectKey));
+        if (!(pending instanceof Map<?, ?> info)) {
+            throw new IllegalArgumentException("Presigned upload not found: " + objectKey);
+        }
+        if (!Objects.equals(info.get("uploadedBy"), uploadedBy)) {
+            restorePending(objectKey, info);
+            throw new IllegalArgumentException("Presigned upload not found: " + objectKey);
+        }
+
+        StatObjectResponse stat;
+        try {
+            stat = minioClient.statObject(StatObjectArgs.builder().bucket(bucket).object(objectKey).build());
+        } catch (Exception e) {
+            // PUT мог ещё не закончиться — клиент повторит complete
+            restorePending(objectKey, info);
+            throw new IllegalStateException("Object was not uploaded: " + objectKey, e);
+        }
+        if (stat.size() > maxSizeBytes) {
+            removeQuietly(objectKey);
+            throw new IllegalArgumentException("Presigned upload exceeds " + maxSizeBytes + " bytes: " + objectKey);
+        }
+
+        try {
+            return storageService.register(
+                    objectKey,
+                    (String) info.get("filename"),
+                    stat.contentType() != null ? stat.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                    stat.size(),
+                    stat.etag(),
+                    uploadedBy);
+        } catch (RuntimeException e) {
+            restorePending(objectKey, info);
+            throw e;
+        }
+    }
+
+    // возвращаем ключ на остаток исходного срока, чтобы повтор complete не продлевал его бесконечно
+    private void restorePending(String objectKey, Map<?, ?> info) {
+        long until = info.get("until") instanceof Number n
+                ? n.longValue()
+                : Instant.now().plusSeconds(expirySeconds * 2L).getEpochSecond();
+        long remaining = until - Instant.now().getEpochSecond();
+        if (remaining > 0) {
+            redis.opsForValue().setIfAbsent(keyPending(objectKey), info, Duration.ofSeconds(remaining));
+        }
+    }
+
+    private void removeQuietly(String objectKey) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(objectKey).build());
+        } catch (Exception e) {
+            log.warn("Cannot remove rejected presigned upload {}", objectKey, e);
+        }
+    }
+
+    public PresignedUrlResponse issueDownload(long id) {
+        FileMetadata meta = storageService.find(id);
+        String disposition = "attachment; filename=\"" + meta.getOriginalFilename().replace("\"", "") + "\"";
+        String url = presign(Method.GET, meta.getObjectKey(), Map.of("response-content-disposition", disposition));
+        return new PresignedUrlResponse(meta.getObjectKey(), url, Instant.now().plusSeconds(expirySeconds));
+    }
+
+    private String presign(Method method, String objectKey, Map<String, String> queryParams) {
+        try {
+            return presignClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(method)
+                    .bucket(bucket)
+                    .object(objectKey)
+                    .expiry(expirySeconds)
+                    .extraQueryParams(queryParams)
+                    .build());
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot presign " + method + " for " + objectKey, e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package rs.examproject.file_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+import rs.examproject.file_service.config.CompactRedisSerializer.Format;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// mapper настроен как redisObjectMapper в RedisConfig
+class CompactRedisSerializerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Map<String, Object> book = book();
+
+    @Test
+    void roundTripInEveryFormat() {
+        for (Format format : Format.values()) {
+            CompactRedisSerializer serializer = new CompactRedisSerializer(MAPPER, format, 0);
+            assertEquals(book, serializer.deserialize(serializer.serialize(book)), format.name());
+        }
+    }
+
+    @Test
+    void writesFormatHeaders() {
+        assertEquals('{', new CompactRedisSerializer(MAPPER, Format.JSON, 0).serialize(book)[0]);
+        assertArrayEquals(new byte[]{':', ')', '\n'}, prefix(new CompactRedisSerializer(MAPPER, Format.SMILE, 0).serialize(book), 3));
+        assertArrayEquals(new byte[]{(byte) 0xD9, (byte) 0xD9, (byte) 0xF7},
+                prefix(new CompactRedisSerializer(MAPPER, Format.CBOR, 0).serialize(book), 3));
+    }
+
+    @Test
+    void readsAnyFormatRegardlessOfConfiguredOne() {
+        // записи, сделанные до смены app.redis.value-format или порога сжатия, должны читаться
+        for (Format written : Format.values()) {
+            for (int threshold : new int[]{0, 1}) {
+                byte[] bytes = new CompactRedisSerializer(MAPPER, written, threshold).serialize(book);
+                for (Format configured : Format.values()) {
+                    assertEquals(book, new CompactRedisSerializer(MAPPER, configured, 0).deserialize(bytes),
+                            written + " (threshold " + threshold + ") read as " + configured);
+                }
+            }
+        }
+    }
+
+    @Test
+    void compressesFromThresholdOn() {
+        byte[] plain = new CompactRedisSerializer(MAPPER, Format.JSON, 0).serialize(book);
+
+        byte[] below = new CompactRedisSerializer(MAPPER, Format.JSON, plain.length + 1).serialize(book);
+        assertArrayEquals(plain, below);
+
+        byte[] at = new CompactRedisSerializer(MAPPER, Format.JSON, plain.length).serialize(book);
+        assertEquals(0x1F, at[0] & 0xFF);
+        assertEquals(0x8B, at[1] & 0xFF);
+        assertEquals(book, new CompactRedisSerializer(MAPPER, Format.JSON, 0).deserialize(at));
+
+        // повторяющийся текст сжимается заметно
+        Map<String, Object> big = Map.of("text", "Война и мир ".repeat(500));
+        CompactRedisSerializer gzip = new CompactRedisSerializer(MAPPER, Format.JSON, 1024);
+        byte[] compressed = gzip.serialize(big);
+        assertTrue(compressed.length < new CompactRedisSerializer(MAPPER, Format.JSON, 0).serialize(big).length / 10);
+        assertEquals(big, gzip.deserialize(compressed));
+    }
+
+    @Test
+    void integersStayPlainJsonForIncr() {
+        for (Format format : Format.values()) {
+            CompactRedisSerializer serializer = new CompactRedisSerializer(MAPPER, format, 1);
+            assertEquals("7", new String(serializer.serialize(7L), StandardCharsets.US_ASCII), format.name());
+            assertEquals("-12", new String(serializer.serialize(-12), StandardCharsets.US_ASCII), format.name());
+            assertEquals(String.valueOf(Long.MAX_VALUE),
+                    new String(serializer.serialize(Long.MAX_VALUE), StandardCharsets.US_ASCII), format.name());
+            // так значение выглядит после INCR в самом Redis
+            assertEquals(42, serializer.deserialize("42".getBytes(StandardCharsets.US_ASCII)));
+            assertEquals(Long.MAX_VALUE, serializer.deserialize(String.valueOf(Long.MAX_VALUE).getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+
+    @Test
+    void nullAndEmpty() {
+        CompactRedisSerializer serializer = new CompactRedisSerializer(MAPPER, Format.SMILE, 16);
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+        assertThrows(SerializationException.class,
+                () -> serializer.deserialize("{not json".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static Map<String, Object> book() {
+        Map<String, Object> book = new LinkedHashMap<>();
+        book.put("id", 17);
+        book.put("title", "Анна Каренина");
+        book.put("author", "Лев Толстой");
+        book.put("tags", List.of("роман", "classic", "classic"));
+        book.put("price", 12.5);
+        book.put("available", true);
+        book.put("updatedAt", MAPPER.convertValue(Instant.parse("2026-01-02T03:04:05Z"), String.class));
+        book.put("isbn", null);
+        return book;
+    }
+
+    private static byte[] prefix(byte[] bytes, int length) {
+        byte[] prefix = new byte[length];
+        System.arraycopy(bytes, 0, prefix, 0, length);
+        return prefix;
+    }
+}
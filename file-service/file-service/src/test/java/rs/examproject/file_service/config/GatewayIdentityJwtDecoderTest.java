@@ -0,0 +1,115 @@
+package rs.examproject.file_service.config;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Подпись X-Verified-Jwt строится так же, как в gateway VerifiedIdentityFilter
+class GatewayIdentityJwtDecoderTest {
+
+    private static final String ISSUER = "http://keycloak:8080/realms/rs-exam-project";
+    private static final String SECRET = "0123456789abcdef0123456789abcdef-test";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    // вместо RSA-проверки: любой токен отвергается, как неподписанный токен отверг бы настоящий декодер
+    private final JwtDecoder rsa = token -> {
+        delegateCalls.incrementAndGet();
+        throw new BadJwtException("Signature verification failed");
+    };
+    private final GatewayIdentityJwtDecoder decoder = new GatewayIdentityJwtDecoder(
+            rsa, JwtValidators.createDefaultWithIssuer(ISSUER), SECRET, new SimpleMeterRegistry());
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void forgedHeaderSignedWithWrongSecretFallsBackToSignatureCheck() throws Exception {
+        String token = forgedToken("attacker-chosen-user");
+        withHeader(header(token, "gateway-identity-dev-secret", Instant.now().plusSeconds(60)));
+
+        assertThrows(BadJwtException.class, () -> decoder.decode(token));
+        assertEquals(1, delegateCalls.get());
+    }
+
+    @Test
+    void missingOrExpiredHeaderFallsBackToSignatureCheck() throws Exception {
+        String token = forgedToken("someone");
+        assertThrows(BadJwtException.class, () -> decoder.decode(token));
+
+        withHeader(header(token, SECRET, Instant.now().minusSeconds(1)));
+        assertThrows(BadJwtException.class, () -> decoder.decode(token));
+
+        withHeader("not-a-header");
+        assertThrows(BadJwtException.class, () -> decoder.decode(token));
+        assertEquals(3, delegateCalls.get());
+    }
+
+    @Test
+    void headerForAnotherTokenFallsBackToSignatureCheck() throws Exception {
+        String token = forgedToken("victim");
+        withHeader(header(forgedToken("someone-else"), SECRET, Instant.now().plusSeconds(60)));
+
+        assertThrows(BadJwtException.class, () -> decoder.decode(token));
+        assertEquals(1, delegateCalls.get());
+    }
+
+    @Test
+    void headerSignedWithSharedSecretSkipsSignatureCheck() throws Exception {
+        String token = forgedToken("ivan");
+        withHeader(header(token, SECRET, Instant.now().plusSeconds(60)));
+
+        Jwt jwt = decoder.decode(token);
+        assertEquals("ivan", jwt.getSubject());
+        assertEquals(0, delegateCalls.get());
+    }
+
+    private static String forgedToken(String subject) {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .issuer(ISSUER)
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                .build();
+        return new PlainJWT(claims).serialize();
+    }
+
+    private static String header(String token, String secret, Instant exp) throws Exception {
+        long seconds = exp.getEpochSecond();
+        String digest = ENCODER.encodeToString(MessageDigest.getInstance("SHA-256")
+                .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return seconds + "." + ENCODER.encodeToString(
+                mac.doFinal((seconds + "." + digest).getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static void withHeader(String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(GatewayIdentityJwtDecoder.HEADER, value);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
@@ -0,0 +1,190 @@
+package rs.examproject.file_service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import rs.examproject.file_service.model.FileMetadata;
+import rs.examproject.file_service.service.ChunkedUploadService;
+import rs.examproject.file_service.service.FileStorageService;
+import rs.examproject.file_service.service.ObjectDiskCache;
+import rs.examproject.file_service.service.PresignedTransferService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Объект на 100 байт (0..99); диска нет, каждый диапазон читается через storageService.open
+class FileControllerRangeTest {
+
+    private static final int SIZE = 100;
+    private static final String ETAG = "\"etag-1\"";
+
+    private final byte[] content = new byte[SIZE];
+    private final FileStorageService storage = mock(FileStorageService.class);
+    private final FileMetadata meta = new FileMetadata();
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        meta.setSize((long) SIZE);
+        meta.setContentType("application/octet-stream");
+        meta.setOriginalFilename("data.bin");
+        when(storage.find(1L)).thenReturn(meta);
+        when(storage.etagOf(meta)).thenReturn(ETAG);
+        when(storage.open(any(FileMetadata.class), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int offset = (int) (long) invocation.getArgument(1);
+            long length = invocation.getArgument(2);
+            int end = length < 0 ? SIZE : offset + (int) length;
+            return new ByteArrayInputStream(Arrays.copyOfRange(content, offset, end));
+        });
+        FileController controller = new FileController(storage, mock(ChunkedUploadService.class),
+                mock(PresignedTransferService.class), mock(ObjectDiskCache.class), new ObjectMapper());
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void singleRange() throws Exception {
+        MockHttpServletResponse response = download(get("/files/1/download").header(HttpHeaders.RANGE, "bytes=10-19"));
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(slice(10, 19), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixRange() throws Exception {
+        MockHttpServletResponse response = download(get("/files/1/download").header(HttpHeaders.RANGE, "bytes=-10"));
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 90-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(slice(90, 99), response.getContentAsByteArray());
+
+        // суффикс длиннее объекта — весь объект
+        response = download(get("/files/1/download").header(HttpHeaders.RANGE, "bytes=-500"));
+        assertEquals("bytes 0-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesAreCoalesced() throws Exception {
+        MockHttpServletResponse overlapping = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=40-59,0-49"));
+        assertEquals(206, overlapping.getStatus());
+        assertEquals("bytes 0-59/100", overlapping.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(slice(0, 59), overlapping.getContentAsByteArray());
+
+        MockHttpServletResponse adjacent = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9,10-19,20-29"));
+        assertEquals("bytes 0-29/100", adjacent.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(slice(0, 29), adjacent.getContentAsByteArray());
+    }
+
+    @Test
+    void disjointRangesGoAsMultipartInOrder() throws Exception {
+        MockHttpServletResponse response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=50-54,0-4,3-6"));
+        assertEquals(206, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertTrue(response.getContentType().startsWith("multipart/byteranges;"), response.getContentType());
+        String body = new String(response.getContentAsByteArray(), StandardCharsets.ISO_8859_1);
+        int first = body.indexOf("Content-Range: bytes 0-6/100");
+        int second = body.indexOf("Content-Range: bytes 50-54/100");
+        assertTrue(first > 0 && second > first, body);
+        assertEquals(2, body.split("Content-Range:", -1).length - 1);
+    }
+
+    @Test
+    void unsatisfiableRange() throws Exception {
+        MockHttpServletResponse response = mvc.perform(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=200-300")).andReturn().getResponse();
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        response = mvc.perform(get("/files/1/download").header(HttpHeaders.RANGE, "bytes=-0")).andReturn().getResponse();
+        assertEquals(416, response.getStatus());
+
+        // невыполнимый диапазон среди выполнимых просто отбрасывается
+        response = download(get("/files/1/download").header(HttpHeaders.RANGE, "bytes=200-300,5-9"));
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 5-9/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void ifRangeEtagMismatchServesWholeObject() throws Exception {
+        MockHttpServletResponse response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, "\"other\""));
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+
+        // слабый ETag в If-Range не подходит даже при совпадении значения
+        response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, "W/" + ETAG));
+        assertEquals(200, response.getStatus());
+
+        response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, ETAG));
+        assertEquals(206, response.getStatus());
+    }
+
+    @Test
+    void ifRangeDateMustMatchExactly() throws Exception {
+        String exact = DateTimeFormatter.RFC_1123_DATE_TIME.format(meta.getCreatedAt().atZone(ZoneOffset.UTC));
+        String later = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                meta.getCreatedAt().plusSeconds(60).atZone(ZoneOffset.UTC));
+
+        MockHttpServletResponse response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, exact));
+        assertEquals(206, response.getStatus());
+
+        response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, later));
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+
+        response = download(get("/files/1/download")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, "not a date"));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws Exception {
+        MockHttpServletResponse response = download(get("/files/1/download").header(HttpHeaders.RANGE, "items=0-9"));
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    // StreamingResponseBody пишется асинхронно — дожидаемся dispatch
+    private MockHttpServletResponse download(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mvc.perform(request).andReturn();
+        return mvc.perform(asyncDispatch(started)).andReturn().getResponse();
+    }
+
+    private byte[] slice(int start, int end) {
+        return Arrays.copyOfRange(content, start, end + 1);
+    }
+}
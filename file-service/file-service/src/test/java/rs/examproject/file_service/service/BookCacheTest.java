@@ -0,0 +1,214 @@
+package rs.examproject.file_service.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import rs.examproject.file_service.config.CompactRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Redis подменён картой: GET/SET идут через RedisCallback так же, как в BookCache. L1 с нулевым TTL,
+// чтобы каждый вызов доходил до Redis и single-flight
+class BookCacheTest {
+
+    private static final String KEY = "books:id:1";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+    private final CompactRedisSerializer serializer =
+            new CompactRedisSerializer(MAPPER, CompactRedisSerializer.Format.JSON, 0);
+    private final List<Runnable> refreshTasks = new CopyOnWriteArrayList<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        BookCache cache = cache(5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(callers.submit(() -> cache.get(KEY, type(cache), () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "from-db";
+            })));
+        }
+        // все десять успевают промахнуться и встать в ожидание, пока первая загрузка заблокирована
+        Thread.sleep(300);
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("from-db", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals("from-db", MAPPER.readValue(store.get(KEY), String.class));
+    }
+
+    @Test
+    void waiterStopsWaitingForStuckLoad() throws Exception {
+        BookCache cache = cache(100);
+        CountDownLatch stuck = new CountDownLatch(1);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        Future<String> leader = callers.submit(() -> cache.get(KEY, type(cache), () -> {
+            leaderStarted.countDown();
+            await(stuck);
+            return "leader";
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        long started = System.nanoTime();
+        String waited = cache.get(KEY, type(cache), () -> "waiter");
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals("waiter", waited);
+        assertTrue(waitedMs >= 100 && waitedMs < 2_000, "waited " + waitedMs + " ms");
+        assertFalse(leader.isDone());
+        stuck.countDown();
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void oneRefreshPerStaleKey() throws Exception {
+        BookCache cache = cache(5_000);
+        store.put(KEY, serializer.serialize(new BookCache.SoftValue<>("old", System.currentTimeMillis() - 1)));
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(callers.submit(() -> cache.getStaleWhileRevalidate(KEY, type(cache), () -> {
+                loads.incrementAndGet();
+                return "fresh";
+            })));
+        }
+        for (Future<String> result : results) {
+            assertEquals("old", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, refreshTasks.size());
+        assertEquals(0, loads.get());
+
+        refreshTasks.get(0).run();
+        assertEquals(1, loads.get());
+        assertEquals("fresh", cache.getStaleWhileRevalidate(KEY, type(cache), () -> "unexpected"));
+        assertEquals(1, refreshTasks.size());
+    }
+
+    @Test
+    void loadStartedBeforeInvalidationIsNotWrittenBack() throws Exception {
+        BookCache cache = cache(5_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = callers.submit(() -> cache.get(KEY, type(cache), () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "before-update";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // запись закоммичена, пока шла загрузка; вне транзакции evict срабатывает сразу
+        cache.evict(KEY);
+        // новый промах не присоединяется к загрузке по старым данным
+        assertEquals("after-update", cache.get(KEY, type(cache), () -> {
+            loads.incrementAndGet();
+            return "after-update";
+        }));
+
+        release.countDown();
+        assertEquals("before-update", slow.get(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+        assertEquals("after-update", MAPPER.readValue(store.get(KEY), String.class));
+    }
+
+    @Test
+    void staleRefreshReadingBeforeInvalidationIsNotWrittenBack() throws Exception {
+        BookCache cache = cache(5_000);
+        store.put(KEY, serializer.serialize(new BookCache.SoftValue<>("old", System.currentTimeMillis() - 1)));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertEquals("old", cache.getStaleWhileRevalidate(KEY, type(cache), () -> {
+            loading.countDown();
+            await(release);
+            return "before-update";
+        }));
+        assertEquals(1, refreshTasks.size());
+
+        Future<?> refresh = callers.submit(refreshTasks.get(0));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.evict(KEY);
+        release.countDown();
+        refresh.get(5, TimeUnit.SECONDS);
+
+        assertFalse(store.containsKey(KEY));
+    }
+
+    private BookCache cache(long singleFlightWaitMs) {
+        return new BookCache(redis(), mock(StringRedisTemplate.class), MAPPER,
+                mock(RedisMessageListenerContainer.class), 30, 0, 100, true, 30,
+                refreshTasks::add, singleFlightWaitMs, new SimpleMeterRegistry());
+    }
+
+    private static JavaType type(BookCache cache) {
+        return cache.type(String.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisTemplate<String, Object> redis() {
+        RedisStringCommands commands = mock(RedisStringCommands.class);
+        when(commands.get(any(byte[].class))).thenAnswer(i -> store.get(key(i.getArgument(0))));
+        when(commands.set(any(byte[].class), any(byte[].class), any(), any())).thenAnswer(i -> {
+            store.put(key(i.getArgument(0)), i.getArgument(1));
+            return true;
+        });
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.stringCommands()).thenReturn(commands);
+
+        RedisTemplate<String, Object> redis = mock(RedisTemplate.class);
+        when(redis.execute(any(RedisCallback.class)))
+                .thenAnswer(i -> ((RedisCallback<Object>) i.getArgument(0)).doInRedis(connection));
+        when(redis.getValueSerializer()).thenAnswer(i -> serializer);
+        when(redis.delete(anyString())).thenAnswer(i -> store.remove((String) i.getArgument(0)) != null);
+        return redis;
+    }
+
+    private static String key(byte[] raw) {
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package rs.examproject.file_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import rs.examproject.file_service.model.Book;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// EntityManager подменён: persist только собирает книги, транзакции — пустой мок менеджера
+class BookImportServiceTest {
+
+    private final Locale defaultLocale = Locale.getDefault();
+    private final List<Book> persisted = new ArrayList<>();
+
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    void upperCaseHeaderIsFoundUnderTurkishLocale() throws Exception {
+        // в турецкой локали "TITLE".toLowerCase() — "tıtle" с точечной i, и колонка не находилась
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+
+        assertEquals(2, service().importCsv(csv("﻿TITLE,Author,ISBN\nAna Karenina,Tolstoj,123\n\"Rat, i mir\",,\n"))
+                .rows());
+        assertEquals("Ana Karenina", persisted.get(0).getTitle());
+        assertEquals("123", persisted.get(0).getIsbn());
+        assertEquals("Rat, i mir", persisted.get(1).getTitle());
+    }
+
+    private BookImportService service() {
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        doAnswer(i -> persisted.add(i.getArgument(0))).when(entityManager).persist(any(Book.class));
+        return new BookImportService(entityManager, mock(BookService.class), new ObjectMapper(),
+                mock(PlatformTransactionManager.class), 100);
+    }
+
+    private static ByteArrayInputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,44 @@
+package rs.examproject.file_service.service;
+
+import org.junit.jupiter.api.Test;
+import rs.examproject.file_service.model.UploadPart;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedUploadServiceTest {
+
+    private static final long MIB = 1024 * 1024;
+
+    @Test
+    void acceptsContiguousPartsWithSmallLastPart() {
+        assertDoesNotThrow(() -> ChunkedUploadService.validateParts("u", List.of(part(1, 5 * MIB), part(2, 5 * MIB), part(3, 1))));
+        assertDoesNotThrow(() -> ChunkedUploadService.validateParts("u", List.of(part(1, 10))));
+    }
+
+    @Test
+    void rejectsEmptyAndGaps() {
+        assertThrows(IllegalArgumentException.class, () -> ChunkedUploadService.validateParts("u", List.of()));
+        IllegalArgumentException gap = assertThrows(IllegalArgumentException.class,
+                () -> ChunkedUploadService.validateParts("u", List.of(part(1, 5 * MIB), part(3, 5 * MIB))));
+        assertTrue(gap.getMessage().contains("Part 2"), gap.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> ChunkedUploadService.validateParts("u", List.of(part(2, 5 * MIB))));
+    }
+
+    @Test
+    void rejectsSmallPartBeforeTheLast() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ChunkedUploadService.validateParts("u", List.of(part(1, 5 * MIB - 1), part(2, 5 * MIB))));
+    }
+
+    private static UploadPart part(int number, long size) {
+        UploadPart part = new UploadPart();
+        part.setPartNumber(number);
+        part.setSize(size);
+        return part;
+    }
+}
@@ -0,0 +1,102 @@
+package rs.examproject.file_service.service;
+
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import rs.examproject.file_service.dto.FileMetadataResponse;
+import rs.examproject.file_service.model.FileMetadata;
+import rs.examproject.file_service.repository.FileMetadataRepository;
+import rs.examproject.file_service.repository.StoredObjectRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileStorageServiceTest {
+
+    private static final String BOUNDARY = "----test-boundary";
+
+    private final MinioClient minio = mock(MinioClient.class);
+    private final FileMetadataRepository repository = mock(FileMetadataRepository.class);
+    private final EventOutbox outbox = mock(EventOutbox.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final FileStorageService service = new FileStorageService(minio, "files", repository, outbox,
+            "file.process", "file.process.large", 64, 16, mock(StoredObjectRepository.class), false,
+            transactionManager);
+
+    @Test
+    void streamsToMinioBeforeOpeningTransaction() throws Exception {
+        AtomicReference<String> uploaded = new AtomicReference<>();
+        when(minio.putObject(any(PutObjectArgs.class))).thenAnswer(invocation -> {
+            PutObjectArgs args = invocation.getArgument(0);
+            uploaded.set(new String(args.stream().readAllBytes(), StandardCharsets.UTF_8));
+            ObjectWriteResponse response = mock(ObjectWriteResponse.class);
+            when(response.etag()).thenReturn("\"etag-1\"");
+            return response;
+        });
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(repository.save(any(FileMetadata.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        FileMetadataResponse response = service.storeStreaming(multipart(
+                field("note", "ignored"),
+                file("file", "hello.txt", "text/plain", "hello, world")), "ivan");
+
+        assertEquals("hello, world", uploaded.get());
+        assertEquals("hello.txt", response.filename());
+        assertEquals(12L, response.size());
+        assertEquals("text/plain", response.contentType());
+        assertTrue(response.objectKey().endsWith("/hello.txt"), response.objectKey());
+
+        InOrder order = inOrder(minio, transactionManager, repository, outbox);
+        order.verify(minio).putObject(any(PutObjectArgs.class));
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(repository).save(any(FileMetadata.class));
+        order.verify(outbox).enqueue(eq("file.process"), any());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void rejectsNonMultipartAndMissingFilePart() throws Exception {
+        MockHttpServletRequest plain = new MockHttpServletRequest("POST", "/files/stream");
+        plain.setContentType("application/json");
+        plain.setContent("{}".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> service.storeStreaming(plain, "ivan"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.storeStreaming(multipart(field("note", "no file here")), "ivan"));
+        verify(minio, never()).putObject(any(PutObjectArgs.class));
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    private static MockHttpServletRequest multipart(String... parts) {
+        String body = String.join("", parts) + "--" + BOUNDARY + "--\r\n";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/files/stream");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static String field(String name, String value) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n";
+    }
+
+    private static String file(String name, String filename, String contentType, String content) {
+        return "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename
+                + "\"\r\nContent-Type: " + contentType + "\r\n\r\n" + content + "\r\n";
+    }
+}
@@ -0,0 +1,91 @@
+package rs.examproject.file_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import rs.examproject.file_service.dto.PresignedPostResponse;
+import rs.examproject.file_service.dto.UploadInitRequest;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Подпись считается локально (регион задан), MinIO для теста не нужен
+class PresignedTransferServiceTest {
+
+    private static final String KEY = "11111111-2222-3333-4444-555555555555/report.pdf";
+
+    private final ValueOperations<String, Object> values = mockValues();
+    private final RedisTemplate<String, Object> redis = mockRedis(values);
+    private final FileStorageService storage = mock(FileStorageService.class);
+    private final MinioClient presignClient = MinioClient.builder()
+            .endpoint("http://files.example.test:9000")
+            .region("us-east-1")
+            .credentials("access", "secret-secret")
+            .build();
+    private final PresignedTransferService service = new PresignedTransferService(
+            mock(MinioClient.class), presignClient, "files", "http://files.example.test:9000/",
+            redis, storage, 900, 10);
+
+    @Test
+    void postPolicyPinsKeyAndSizeRange() throws Exception {
+        when(storage.newObjectKey("report.pdf")).thenReturn(KEY);
+
+        PresignedPostResponse response = service.issueUpload(new UploadInitRequest("report.pdf", "application/pdf"), "ivan");
+
+        assertEquals("http://files.example.test:9000/files", response.url());
+        assertEquals(KEY, response.fields().get("key"));
+        assertEquals("application/pdf", response.fields().get("Content-Type"));
+        JsonNode conditions = policy(response).get("conditions");
+        assertTrue(conditions.toString().contains("[\"content-length-range\",1," + 10 * 1024 * 1024 + "]"), conditions.toString());
+        assertTrue(conditions.toString().contains("[\"eq\",\"$key\",\"" + KEY + "\"]"), conditions.toString());
+        assertTrue(conditions.toString().contains("[\"eq\",\"$Content-Type\",\"application/pdf\"]"), conditions.toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void missingUploaderAndContentTypeDoNotFail() throws Exception {
+        when(storage.newObjectKey("report.pdf")).thenReturn(KEY);
+
+        PresignedPostResponse response = service.issueUpload(new UploadInitRequest("report.pdf", null), null);
+
+        assertFalse(response.fields().containsKey("Content-Type"));
+        assertFalse(policy(response).get("conditions").toString().contains("Content-Type"));
+        ArgumentCaptor<Object> pending = ArgumentCaptor.forClass(Object.class);
+        verify(values).set(eq("files:presigned:" + KEY), pending.capture(), any(Duration.class));
+        Map<String, Object> info = (Map<String, Object>) pending.getValue();
+        assertTrue(info.containsKey("uploadedBy"));
+        assertNull(info.get("uploadedBy"));
+        assertEquals("report.pdf", info.get("filename"));
+    }
+
+    private static JsonNode policy(PresignedPostResponse response) throws Exception {
+        return new ObjectMapper().readTree(Base64.getDecoder().decode(response.fields().get("policy")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueOperations<String, Object> mockValues() {
+        return mock(ValueOperations.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisTemplate<String, Object> mockRedis(ValueOperations<String, Object> values) {
+        RedisTemplate<String, Object> redis = mock(RedisTemplate.class);
+        when(redis.opsForValue()).thenReturn(values);
+        return redis;
+    }
+}
@@ -0,0 +1,46 @@
+package rs.examproject.processing_service.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Читает объект один раз и раздаёт каждый прочитанный кусок всем анализаторам.
+ * Буфер один на поток consumer'а и переиспользуется между файлами, поэтому память не зависит от размера объекта.
+ */
+@Component
+public class AnalysisPipeline {
+
+    private final List<FileAnalyzer> analyzers;
+    private final ThreadLocal<byte[]> buffers;
+
+    public AnalysisPipeline(List<FileAnalyzer> analyzers,
+                            @Value("${app.processing.analysis.buffer-kb:64}") int bufferKb) {
+        this.analyzers = analyzers;
+        this.buffers = ThreadLocal.withInitial(() -> new byte[bufferKb * 1024]);
+    }
+
+    public AnalysisResult run(FileUploadedEvent event, InputStream in) throws IOException {
+        List<FileAnalyzer.Session> sessions = analyzers.stream().map(a -> a.start(event)).toList();
+        byte[] buffer = buffers.get();
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            for (FileAnalyzer.Session session : sessions) {
+                session.update(buffer, 0, n);
+            }
+            total += n;
+        }
+
+        AnalysisResult result = new AnalysisResult();
+        result.setBytes(total);
+        for (FileAnalyzer.Session session : sessions) {
+            session.complete(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package rs.examproject.processing_service.analysis;
+
+import rs.examproject.processing_service.dto.FileAnalyzedEvent;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+public class AnalysisResult {
+
+    private long bytes;
+    private String sha256;
+    private String detectedContentType;
+    private Long lineCount;
+    private Long wordCount;
+    private Integer imageWidth;
+    private Integer imageHeight;
+
+    public long getBytes() { return bytes; }
+    public String getSha256() { return sha256; }
+    public String getDetectedContentType() { return detectedContentType; }
+    public Long getLineCount() { return lineCount; }
+    public Long getWordCount() { return wordCount; }
+    public Integer getImageWidth() { return imageWidth; }
+    public Integer getImageHeight() { return imageHeight; }
+
+    public void setBytes(long bytes) { this.bytes = bytes; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public void setDetectedContentType(String detectedContentType) { this.detectedContentType = detectedContentType; }
+    public void setLineCount(Long lineCount) { this.lineCount = lineCount; }
+    public void setWordCount(Long wordCount) { this.wordCount = wordCount; }
+    public void setImageWidth(Integer imageWidth) { this.imageWidth = imageWidth; }
+    public void setImageHeight(Integer imageHeight) { this.imageHeight = imageHeight; }
+
+    public boolean isText() {
+        return detectedContentType != null && (detectedContentType.startsWith("text/")
+                || detectedContentType.equals("application/json")
+                || detectedContentType.equals("application/xml"));
+    }
+
+    public FileAnalyzedEvent toEvent(FileUploadedEvent source) {
+        return new FileAnalyzedEvent(source.id(), source.objectKey(), bytes, sha256, detectedContentType,
+                lineCount, wordCount, imageWidth, imageHeight);
+    }
+}
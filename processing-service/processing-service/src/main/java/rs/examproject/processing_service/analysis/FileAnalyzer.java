@@ -0,0 +1,20 @@
+package rs.examproject.processing_service.analysis;
+
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+/**
+ * Анализатор, которому поток объекта раздаётся кусками за один проход.
+ * Реализации — Spring-бины; порядок (@Order) важен для complete: поздние видят результаты ранних.
+ */
+public interface FileAnalyzer {
+
+    Session start(FileUploadedEvent event);
+
+    interface Session {
+
+        // буфер переиспользуется пайплайном — ссылку на него сохранять нельзя, только копировать нужное
+        void update(byte[] buffer, int offset, int length);
+
+        void complete(AnalysisResult result);
+    }
+}
@@ -0,0 +1,205 @@
+package rs.examproject.processing_service.analysis;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ширина и высота изображения из заголовка, без декодирования пикселей.
+ * PNG, GIF, BMP и WebP укладываются в первые 32 байта; у JPEG размеры в сегменте SOFn,
+ * который ищется конечным автоматом по маркерам — остальные сегменты пропускаются по длине.
+ */
+@Component
+@Order(30)
+public class ImageDimensionsAnalyzer implements FileAnalyzer {
+
+    private static final int HEADER_BYTES = 32;
+
+    @Override
+    public Session start(FileUploadedEvent event) {
+        return new ImageSession();
+    }
+
+    private static final class ImageSession implements Session {
+
+        private enum Jpeg { SEARCH, MARKER, LENGTH_HIGH, LENGTH_LOW, SKIP, FRAME, DONE }
+
+        private final byte[] header = new byte[HEADER_BYTES];
+        private int filled;
+        private long position;
+        private boolean jpegChecked;
+        private boolean jpeg;
+        private Jpeg state = Jpeg.SEARCH;
+        private int marker;
+        private int remaining;
+        private final byte[] frame = new byte[5];
+        private int frameFilled;
+        private Integer width;
+        private Integer height;
+
+        @Override
+        public void update(byte[] buffer, int offset, int length) {
+            if (filled < HEADER_BYTES) {
+                int n = Math.min(length, HEADER_BYTES - filled);
+                System.arraycopy(buffer, offset, header, filled, n);
+                filled += n;
+            }
+            long chunkStart = position;
+            position += length;
+
+            if (!jpegChecked && filled >= 2) {
+                jpegChecked = true;
+                jpeg = (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8;
+            }
+            if (jpeg && state != Jpeg.DONE) {
+                // маркеры ищутся после SOI, т.е. с третьего байта потока
+                int from = offset + (int) Math.max(0, Math.min(length, 2 - chunkStart));
+                scanJpeg(buffer, from, offset + length);
+            }
+        }
+
+        private void scanJpeg(byte[] buffer, int i, int end) {
+            while (i < end && state != Jpeg.DONE) {
+                int b = buffer[i] & 0xFF;
+                switch (state) {
+                    case SEARCH -> {
+                        if (b == 0xFF) {
+                            state = Jpeg.MARKER;
+                        }
+                        i++;
+                    }
+                    case MARKER -> {
+                        i++;
+                        if (b == 0xFF) {
+                            break; // заполняющие байты
+                        }
+                        if (b == 0xD9 || b == 0xDA) {
+                            state = Jpeg.DONE; // EOI или начало данных скана: SOF уже должен был встретиться
+                        } else if (b == 0x01 || b == 0xD8 || (b >= 0xD0 && b <= 0xD7) || b == 0x00) {
+                            state = Jpeg.SEARCH; // маркеры без длины
+                        } else {
+                            marker = b;
+                            state = Jpeg.LENGTH_HIGH;
+                        }
+                    }
+                    case LENGTH_HIGH -> {
+                        remaining = b << 8;
+                        state = Jpeg.LENGTH_LOW;
+                        i++;
+                    }
+                    case LENGTH_LOW -> {
+                        remaining = (remaining | b) - 2;
+                        state = isFrameMarker(marker) ? Jpeg.FRAME : Jpeg.SKIP;
+                        i++;
+                    }
+                    case SKIP -> {
+                        int n = Math.min(remaining, end - i);
+                        i += n;
+                        remaining -= n;
+                        if (remaining <= 0) {
+                            state = Jpeg.SEARCH;
+                        }
+                    }
+                    case FRAME -> {
+                        frame[frameFilled++] = (byte) b;
+                        i++;
+                        if (frameFilled == frame.length) {
+                            height = ((frame[1] & 0xFF) << 8) | (frame[2] & 0xFF);
+                            width = ((frame[3] & 0xFF) << 8) | (frame[4] & 0xFF);
+                            state = Jpeg.DONE;
+                        }
+                    }
+                    default -> i = end;
+                }
+            }
+        }
+
+        // SOF0..SOF15, кроме DHT (C4), JPG (C8) и DAC (CC)
+        private static boolean isFrameMarker(int marker) {
+            return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+        }
+
+        @Override
+        public void complete(AnalysisResult result) {
+            String type = result.getDetectedContentType();
+            if (type == null || !type.startsWith("image/")) {
+                return;
+            }
+            if (!jpeg) {
+                readHeader(type);
+            }
+            if (width != null && height != null && width > 0 && height > 0) {
+                result.setImageWidth(width);
+                result.setImageHeight(height);
+            }
+        }
+
+        private void readHeader(String type) {
+            switch (type) {
+                case "image/png" -> {
+                    if (filled >= 24) {
+                        width = intBE(16);
+                        height = intBE(20);
+                    }
+                }
+                case "image/gif" -> {
+                    if (filled >= 10) {
+                        width = u16LE(6);
+                        height = u16LE(8);
+                    }
+                }
+                case "image/bmp" -> {
+                    if (filled >= 26) {
+                        width = intLE(18);
+                        height = Math.abs(intLE(22)); // отрицательная высота — строки сверху вниз
+                    }
+                }
+                case "image/webp" -> readWebp();
+                default -> { }
+            }
+        }
+
+        private void readWebp() {
+            if (filled < 30) {
+                return;
+            }
+            String chunk = new String(header, 12, 4, StandardCharsets.US_ASCII);
+            switch (chunk) {
+                case "VP8X" -> {
+                    width = u24LE(24) + 1;
+                    height = u24LE(27) + 1;
+                }
+                case "VP8L" -> {
+                    int bits = intLE(21);
+                    width = (bits & 0x3FFF) + 1;
+                    height = ((bits >> 14) & 0x3FFF) + 1;
+                }
+                case "VP8 " -> {
+                    width = u16LE(26) & 0x3FFF;
+                    height = u16LE(28) & 0x3FFF;
+                }
+                default -> { }
+            }
+        }
+
+        private int intBE(int at) {
+            return ((header[at] & 0xFF) << 24) | ((header[at + 1] & 0xFF) << 16)
+                    | ((header[at + 2] & 0xFF) << 8) | (header[at + 3] & 0xFF);
+        }
+
+        private int intLE(int at) {
+            return (header[at] & 0xFF) | ((header[at + 1] & 0xFF) << 8)
+                    | ((header[at + 2] & 0xFF) << 16) | ((header[at + 3] & 0xFF) << 24);
+        }
+
+        private int u16LE(int at) {
+            return (header[at] & 0xFF) | ((header[at + 1] & 0xFF) << 8);
+        }
+
+        private int u24LE(int at) {
+            return (header[at] & 0xFF) | ((header[at + 1] & 0xFF) << 8) | ((header[at + 2] & 0xFF) << 16);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package rs.examproject.processing_service.analysis;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Тип по сигнатуре первых байтов; если сигнатуры нет, но содержимое похоже на текст — text/plain
+ * (или заявленный текстовый тип), иначе заявленный клиентом тип.
+ */
+@Component
+@Order(10)
+public class MimeSniffAnalyzer implements FileAnalyzer {
+
+    private static final int SNIFF_BYTES = 512;
+
+    @Override
+    public Session start(FileUploadedEvent event) {
+        byte[] head = new byte[SNIFF_BYTES];
+        return new Session() {
+            private int filled;
+
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                if (filled < SNIFF_BYTES) {
+                    int n = Math.min(length, SNIFF_BYTES - filled);
+                    System.arraycopy(buffer, offset, head, filled, n);
+                    filled += n;
+                }
+            }
+
+            @Override
+            public void complete(AnalysisResult result) {
+                result.setDetectedContentType(detect(Arrays.copyOf(head, filled), event.contentType()));
+            }
+        };
+    }
+
+    static String detect(byte[] h, String declared) {
+        if (startsWith(h, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "image/png";
+        if (startsWith(h, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(h, 0, 'G', 'I', 'F', '8')) return "image/gif";
+        if (startsWith(h, 0, 'R', 'I', 'F', 'F') && startsWith(h, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+        if (startsWith(h, 0, 'B', 'M')) return "image/bmp";
+        if (startsWith(h, 0, '%', 'P', 'D', 'F', '-')) return "application/pdf";
+        if (startsWith(h, 0, 'P', 'K', 0x03, 0x04)) return zipFamily(declared);
+        if (startsWith(h, 0, 0x1F, 0x8B)) return "application/gzip";
+        if (startsWith(h, 4, 'f', 't', 'y', 'p')) return "video/mp4";
+        if (startsWith(h, 0, 'I', 'D', '3') || startsWith(h, 0, 0xFF, 0xFB)) return "audio/mpeg";
+
+        if (h.length > 0 && looksLikeText(h)) {
+            String text = new String(h, StandardCharsets.UTF_8).stripLeading().toLowerCase(Locale.ROOT);
+            if (text.startsWith("<?xml")) return "application/xml";
+            if (text.startsWith("<!doctype html") || text.startsWith("<html")) return "text/html";
+            if (declared != null && (declared.startsWith("text/") || declared.equals("application/json"))) {
+                return declared;
+            }
+            return "text/plain";
+        }
+        return declared == null || declared.isBlank() ? "application/octet-stream" : declared;
+    }
+
+    // docx/xlsx/jar тоже zip: заявленный тип из этого семейства оставляем
+    private static String zipFamily(String declared) {
+        if (declared != null && (declared.startsWith("application/vnd.openxmlformats")
+                || declared.equals("application/java-archive") || declared.equals("application/epub+zip"))) {
+            return declared;
+        }
+        return "application/zip";
+    }
+
+    private static boolean looksLikeText(byte[] h) {
+        int control = 0;
+        for (byte b : h) {
+            int c = b & 0xFF;
+            if (c == 0) {
+                return false;
+            }
+            if (c < 0x20 && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != 0x1B) {
+                control++;
+            }
+        }
+        return control * 100 < h.length;
+    }
+
+    private static boolean startsWith(byte[] h, int offset, int... signature) {
+        if (h.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((h[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
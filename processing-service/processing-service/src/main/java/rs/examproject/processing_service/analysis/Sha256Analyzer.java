@@ -0,0 +1,35 @@
+package rs.examproject.processing_service.analysis;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Component
+@Order(0)
+public class Sha256Analyzer implements FileAnalyzer {
+
+    @Override
+    public Session start(FileUploadedEvent event) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Session() {
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                digest.update(buffer, offset, length);
+            }
+
+            @Override
+            public void complete(AnalysisResult result) {
+                result.setSha256(HexFormat.of().formatHex(digest.digest()));
+            }
+        };
+    }
+}
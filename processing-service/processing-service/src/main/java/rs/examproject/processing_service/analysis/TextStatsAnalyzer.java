@@ -0,0 +1,52 @@
+package rs.examproject.processing_service.analysis;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+/**
+ * Строки и слова (как wc -l / wc -w по ASCII-пробелам). Считается всегда, а в результат попадает,
+ * только если MimeSniffAnalyzer признал содержимое текстом — тип становится известен лишь в конце.
+ */
+@Component
+@Order(20)
+public class TextStatsAnalyzer implements FileAnalyzer {
+
+    @Override
+    public Session start(FileUploadedEvent event) {
+        return new Session() {
+            private long lines;
+            private long words;
+            private boolean inWord;
+            private int last = -1;
+
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                for (int i = offset; i < offset + length; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        lines++;
+                    }
+                    boolean space = b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+                    if (!space && !inWord) {
+                        words++;
+                    }
+                    inWord = !space;
+                }
+                if (length > 0) {
+                    last = buffer[offset + length - 1] & 0xFF;
+                }
+            }
+
+            @Override
+            public void complete(AnalysisResult result) {
+                if (!result.isText()) {
+                    return;
+                }
+                // последняя строка без перевода строки тоже строка
+                result.setLineCount(last != -1 && last != '\n' ? lines + 1 : lines);
+                result.setWordCount(words);
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package rs.examproject.processing_service.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import rs.examproject.processing_service.service.RetryPolicy;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * DLX основных очередей lane'ов задаётся политикой брокера, а не аргументами очереди: file.process уже объявлена
+ * без x-dead-letter-* (в том числе file-service), и повторное объявление с другими аргументами брокер отвергает
+ * (PRECONDITION_FAILED). Политика применяется к существующей очереди на лету — пересоздавать её не нужно.
+ * Ставится через management API при старте; недоступен — только предупреждение, отвергнутые контейнером сообщения
+ * тогда, как и раньше, не попадают в q.dlq.
+ */
+@Component
+public class DeadLetterPolicies {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterPolicies.class);
+
+    private final RetryPolicy retryPolicy;
+    private final RestClient management;
+    private final String managementUrl;
+    private final String virtualHost;
+    private final String fileQueue;
+    private final String largeFileQueue;
+
+    public DeadLetterPolicies(RetryPolicy retryPolicy,
+                              @Value("${app.processing.rabbit-management.url:http://localhost:15672}") String managementUrl,
+                              @Value("${spring.rabbitmq.username:guest}") String username,
+                              @Value("${spring.rabbitmq.password:guest}") String password,
+                              @Value("${spring.rabbitmq.virtual-host:/}") String virtualHost,
+                              @Value("${app.file.queue:file.process}") String fileQueue,
+                              @Value("${app.file.large-queue:file.process.large}") String largeFileQueue) {
+        this.retryPolicy = retryPolicy;
+        this.management = RestClient.builder()
+                .defaultHeaders(h -> h.setBasicAuth(username, password))
+                .build();
+        this.managementUrl = managementUrl;
+        this.virtualHost = virtualHost;
+        this.fileQueue = fileQueue;
+        this.largeFileQueue = largeFileQueue;
+    }
+
+    @PostConstruct
+    public void apply() {
+        apply(fileQueue);
+        apply(largeFileQueue);
+    }
+
+    // PUT идемпотентен: политика с тем же именем перезаписывается
+    private void apply(String queue) {
+        Map<String, Object> policy = Map.of(
+                "pattern", "^" + queue.replace(".", "\\.") + "$",
+                "apply-to", "queues",
+                "priority", 0,
+                "definition", Map.of(
+                        "dead-letter-exchange", "",
+                        "dead-letter-routing-key", retryPolicy.deadLetterQueue(queue)));
+        URI uri = URI.create(managementUrl + "/api/policies/" + encode(virtualHost) + "/" + encode(queue + ".dlx"));
+        try {
+            management.put()
+                    .uri(uri)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(policy)
+                    .retrieve()
+                    .toBodilessEntity();
+            log.info("Dead-letter policy for {} -> {}", queue, retryPolicy.deadLetterQueue(queue));
+        } catch (RestClientException e) {
+            log.warn("Cannot set dead-letter policy for {} via {}: {}", queue, managementUrl, e.toString());
+        }
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
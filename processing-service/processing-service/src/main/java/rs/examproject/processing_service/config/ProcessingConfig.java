@@ -1,11 +1,16 @@
 package rs.examproject.processing_service.config;
 
 import io.minio.MinioClient;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import rs.examproject.processing_service.service.RetryPolicy;
 
 @Configuration
 public class ProcessingConfig {
@@ -27,6 +32,82 @@ public class ProcessingConfig {
         return new Queue(queueName, true);
     }
 
+    @Bean
+    public Queue largeFileQueue(@Value("${app.file.large-queue:file.process.large}") String queueName) {
+        return new Queue(queueName, true);
+    }
+
+    // очереди задержки и DLQ для каждого lane, см. RetryPolicy
+    @Bean
+    public Declarables fileQueueRetryTopology(RetryPolicy retryPolicy,
+                                              @Value("${app.file.queue:file.process}") String queueName) {
+        return retryPolicy.topology(queueName);
+    }
+
+    @Bean
+    public Declarables largeFileQueueRetryTopology(RetryPolicy retryPolicy,
+                                                   @Value("${app.file.large-queue:file.process.large}") String queueName) {
+        return retryPolicy.topology(queueName);
+    }
+
+    // результаты анализа уходят обратно в file-service
+    @Bean
+    public Queue fileAnalyzedQueue(@Value("${app.file.analyzed-queue:file.analyzed}") String queueName) {
+        return new Queue(queueName, true);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory fileListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.processing.concurrency:1}") int concurrency,
+            @Value("${app.processing.max-concurrency:1}") int maxConcurrency,
+            @Value("${app.processing.prefetch:1}") int prefetch,
+            @Value("${app.processing.batch.enabled:false}") boolean batchEnabled,
+            @Value("${app.processing.batch.size:10}") int batchSize,
+            @Value("${app.processing.batch.receive-timeout-ms:200}") long receiveTimeoutMs
+    ) {
+        return listenerFactory(configurer, connectionFactory, concurrency, maxConcurrency, prefetch,
+                batchEnabled ? batchSize : 1, receiveTimeoutMs);
+    }
+
+    // lane крупных файлов: без пачек и с prefetch 1 — один consumer держит ровно один большой файл
+    @Bean
+    public SimpleRabbitListenerContainerFactory largeFileListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.processing.large.concurrency:1}") int concurrency,
+            @Value("${app.processing.large.max-concurrency:2}") int maxConcurrency
+    ) {
+        return listenerFactory(configurer, connectionFactory, concurrency, maxConcurrency, 1, 1, 1000);
+    }
+
+    /**
+     * Контейнер всегда batch-listener: без batch-режима пачка из одного сообщения,
+     * так что у слушателя одна сигнатура на оба режима.
+     */
+    private SimpleRabbitListenerContainerFactory listenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            int concurrency, int maxConcurrency, int prefetch, int batchSize, long receiveTimeoutMs
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        // prefetch меньше пачки не даст её собрать
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        // ошибки обрабатываются по сообщениям в FileProcessingService; если исключение всё же вышло из listener'а
+        // (не удалось даже переопубликовать), пачка уходит в DLX, а не крутится в requeue без задержки
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
     @Bean
     public Jackson2JsonMessageConverter jackson2JsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -1,43 +1,192 @@
 package rs.examproject.processing_service.service;
 
-import io.minio.GetObjectArgs;
-import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
+import rs.examproject.processing_service.analysis.AnalysisPipeline;
+import rs.examproject.processing_service.analysis.AnalysisResult;
 import rs.examproject.processing_service.dto.FileUploadedEvent;
 
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
 
 @Service
 public class FileProcessingService {
 
     private static final Logger log = LoggerFactory.getLogger(FileProcessingService.class);
 
-    private final MinioClient minioClient;
-    private final String bucket;
+    private final RangedObjectReader objectReader;
+    private final ProcessingMetrics metrics;
+    private final AnalysisPipeline pipeline;
+    private final RabbitTemplate rabbitTemplate;
+    private final ProcessingLedger ledger;
+    private final RetryPolicy policy;
+    private final String analyzedQueue;
+    private final String fileQueue;
 
-    public FileProcessingService(MinioClient minioClient,
-                                 @Value("${minio.bucket}") String bucket) {
-        this.minioClient = minioClient;
-        this.bucket = bucket;
+    public FileProcessingService(RangedObjectReader objectReader,
+                                 ProcessingMetrics metrics,
+                                 AnalysisPipeline pipeline,
+                                 RabbitTemplate rabbitTemplate,
+                                 ProcessingLedger ledger,
+                                 RetryPolicy policy,
+                                 @Value("${app.file.analyzed-queue:file.analyzed}") String analyzedQueue,
+                                 @Value("${app.file.queue:file.process}") String fileQueue) {
+        this.objectReader = objectReader;
+        this.metrics = metrics;
+        this.pipeline = pipeline;
+        this.rabbitTemplate = rabbitTemplate;
+        this.ledger = ledger;
+        this.policy = policy;
+        this.analyzedQueue = analyzedQueue;
+        this.fileQueue = fileQueue;
     }
 
-    @RabbitListener(queues = "${app.file.queue:file.process}")
-    public void handleFileUploaded(FileUploadedEvent event) {
+    // Пачка (или одно сообщение, если batch выключен); мелкие файлы идут первыми, чтобы не ждать большой
+    @RabbitListener(queues = "${app.file.queue:file.process}", containerFactory = "fileListenerContainerFactory")
+    public void handleFileUploaded(List<Message<FileUploadedEvent>> messages) {
+        processAll(messages);
+    }
+
+    // Отдельный lane для крупных файлов: свои consumer'ы, поэтому мелкие не ждут за ними в очереди
+    @RabbitListener(queues = "${app.file.large-queue:file.process.large}",
+            containerFactory = "largeFileListenerContainerFactory")
+    public void handleLargeFileUploaded(List<Message<FileUploadedEvent>> messages) {
+        processAll(messages);
+    }
+
+    private void processAll(List<Message<FileUploadedEvent>> messages) {
+        messages.stream()
+                .sorted(Comparator.comparingLong(m -> m.getPayload().size() == null ? Long.MAX_VALUE : m.getPayload().size()))
+                .forEach(this::process);
+    }
+
+    private void process(Message<FileUploadedEvent> message) {
+        FileUploadedEvent event = message.getPayload();
+        String queue = message.getHeaders().get(AmqpHeaders.CONSUMER_QUEUE) instanceof String q ? q : fileQueue;
+        if (message.getHeaders().get(AmqpHeaders.TIMESTAMP) instanceof Date published) {
+            metrics.recordLag(queue, Duration.ofMillis(System.currentTimeMillis() - published.getTime()));
+        }
+
         log.info("Received file event id={} key={} size={} type={}",
                 event.id(), event.objectKey(), event.size(), event.contentType());
-        try (InputStream stream = minioClient.getObject(GetObjectArgs.builder()
-                .bucket(bucket)
-                .object(event.objectKey())
-                .build())) {
+        int attempt = message.getHeaders().get(RetryPolicy.ATTEMPT_HEADER) instanceof Number n ? n.intValue() : 0;
+        int deferrals = message.getHeaders().get(RetryPolicy.DEFERRAL_HEADER) instanceof Number n ? n.intValue() : 0;
+        try {
+            processOnce(queue, message, attempt, deferrals);
+        } catch (Exception e) {
+            // Redis или брокер отказали вне анализа (журнал, переопубликация): это сообщение — в retry,
+            // остальная пачка обрабатывается дальше
+            handleFailure(queue, message, attempt + 1, e);
+        }
+    }
+
+    private void processOnce(String queue, Message<FileUploadedEvent> message, int attempt, int deferrals) {
+        FileUploadedEvent event = message.getPayload();
+        if (ledger.isDone(event)) {
+            metrics.duplicate();
+            log.info("File {} already processed, skipping redelivery", event.objectKey());
+            return;
+        }
+        if (!ledger.tryAcquire(event)) {
+            // дубль уже в работе у другого consumer'а (или тот упал, не отпустив аренду): откладываем
+            // с растущей задержкой, не считая попыткой; бесконечно не крутим
+            if (policy.canDefer(deferrals + 1)) {
+                metrics.deferred();
+                republish(policy.deferralQueue(queue, deferrals + 1), message, attempt, deferrals + 1,
+                        "in progress elsewhere");
+            } else {
+                log.error("File {} stayed locked for {} deferrals, sending to DLQ", event.objectKey(), deferrals);
+                metrics.deadLettered();
+                republish(policy.deadLetterQueue(queue), message, attempt, deferrals, "lease never released");
+            }
+            return;
+        }
 
-            long bytes = stream.transferTo(java.io.OutputStream.nullOutputStream());
-            log.info("Processed file {} ({} bytes) uploadedBy={}", event.filename(), bytes, event.uploadedBy());
+        long started = System.nanoTime();
+        boolean ok = false;
+        try (InputStream stream = objectReader.open(event.objectKey(), event.size())) {
+
+            AnalysisResult result = pipeline.run(event, stream);
+            rabbitTemplate.convertAndSend(analyzedQueue, result.toEvent(event));
+            ledger.markDone(event);
+            ok = true;
+            log.info("Processed file {} ({} bytes, {}) uploadedBy={}",
+                    event.filename(), result.getBytes(), result.getDetectedContentType(), event.uploadedBy());
         } catch (Exception e) {
-            log.error("Failed to process file {}", event.objectKey(), e);
+            releaseQuietly(event);
+            handleFailure(queue, message, attempt + 1, e);
+        } finally {
+            metrics.recordProcessed(queue, System.nanoTime() - started, ok);
+        }
+    }
+
+    private void handleFailure(String queue, Message<FileUploadedEvent> message, int failedAttempts, Exception e) {
+        FileUploadedEvent event = message.getPayload();
+        if (isNoSuchKey(e)) {
+            // файл удалён раньше, чем дошла очередь — обрабатывать нечего
+            log.warn("Object {} no longer exists, dropping event id={}", event.objectKey(), event.id());
+            try {
+                ledger.markDone(event);
+            } catch (RuntimeException markFailed) {
+                // повтор снова упрётся в NoSuchKey, так что отметка не обязательна
+                log.warn("Cannot mark {} done", event.objectKey(), markFailed);
+            }
+            return;
         }
+        boolean poison = e instanceof IllegalArgumentException || e instanceof NullPointerException;
+        if (!poison && policy.canRetry(failedAttempts)) {
+            log.warn("Failed to process file {} (attempt {}), retrying in {} ms",
+                    event.objectKey(), failedAttempts, policy.delayMs(failedAttempts), e);
+            metrics.retried();
+            republish(policy.retryQueue(queue, failedAttempts), message, failedAttempts, 0, e.toString());
+        } else {
+            log.error("Failed to process file {} after {} attempts, sending to DLQ", event.objectKey(), failedAttempts, e);
+            metrics.deadLettered();
+            republish(policy.deadLetterQueue(queue), message, failedAttempts, 0, e.toString());
+        }
+    }
+
+    private void releaseQuietly(FileUploadedEvent event) {
+        try {
+            ledger.release(event);
+        } catch (RuntimeException e) {
+            // аренда истечёт сама через lease-minutes
+            log.warn("Cannot release lease of {}", event.objectKey(), e);
+        }
+    }
+
+    // в ranged-чтении ошибка MinIO приходит обёрнутой в IOException — смотрим всю цепочку причин
+    private static boolean isNoSuchKey(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ErrorResponseException minio && "NoSuchKey".equals(minio.errorResponse().code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // исходный timestamp сохраняется, чтобы lag считался от загрузки, а не от последней попытки
+    private void republish(String queue, Message<FileUploadedEvent> message, int attempt, int deferrals, String error) {
+        Object timestamp = message.getHeaders().get(AmqpHeaders.TIMESTAMP);
+        rabbitTemplate.convertAndSend("", queue, message.getPayload(), m -> {
+            m.getMessageProperties().setHeader(RetryPolicy.ATTEMPT_HEADER, attempt);
+            m.getMessageProperties().setHeader(RetryPolicy.DEFERRAL_HEADER, deferrals);
+            m.getMessageProperties().setHeader(RetryPolicy.ERROR_HEADER,
+                    error.length() > 500 ? error.substring(0, 500) : error);
+            if (timestamp instanceof Date date) {
+                m.getMessageProperties().setTimestamp(date);
+            }
+            return m;
+        });
     }
 }
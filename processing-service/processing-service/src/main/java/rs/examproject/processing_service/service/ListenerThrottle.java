@@ -0,0 +1,49 @@
+package rs.examproject.processing_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Останавливает Rabbit-слушатели, пока MinioConcurrencyLimiter насыщен, и запускает обратно, когда очередь к нему пуста.
+ * Неподтверждённые сообщения остановленных consumer'ов возвращаются брокеру и достаются другим репликам.
+ */
+@Component
+public class ListenerThrottle {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerThrottle.class);
+
+    private final RabbitListenerEndpointRegistry registry;
+    private final MinioConcurrencyLimiter limiter;
+    private volatile boolean paused;
+
+    public ListenerThrottle(RabbitListenerEndpointRegistry registry,
+                            MinioConcurrencyLimiter limiter,
+                            MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.limiter = limiter;
+        Gauge.builder("file.processing.paused", this, t -> t.paused ? 1 : 0).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.processing.limiter.check-ms:1000}")
+    public void adjust() {
+        if (!paused && limiter.isSaturated()) {
+            paused = true;
+            log.warn("MinIO limiter saturated (limit {}, waiting {}), pausing listeners",
+                    Math.round(limiter.limit()), limiter.waiting());
+            // асинхронно: consumer'ы дорабатывают текущие сообщения, планировщик не блокируется
+            for (MessageListenerContainer container : registry.getListenerContainers()) {
+                container.stop(() -> log.debug("Listener container stopped"));
+            }
+        } else if (paused && limiter.waiting() == 0) {
+            paused = false;
+            log.info("MinIO limiter has headroom (limit {}), resuming listeners", Math.round(limiter.limit()));
+            registry.getListenerContainers().forEach(MessageListenerContainer::start);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package rs.examproject.processing_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD-лимит одновременных GET в MinIO. Сигнал — задержка на мегабайт (маленькие объекты считаются за 1 МБ):
+ * пока она в пределах tolerance от базовой, лимит растёт на 1 за "окно" (+1/limit на успех);
+ * при ошибке или превышении — умножается на backoff, не чаще раза в cooldown.
+ * Базовая задержка — минимум с медленным дрейфом вверх, чтобы переезд MinIO на другое железо не держал лимит внизу вечно.
+ */
+@Component
+public class MinioConcurrencyLimiter {
+
+    private static final double MB = 1024 * 1024;
+    private static final double BACKOFF = 0.75;
+    private static final double BASELINE_DRIFT = 0.005;
+    private static final long COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final Timer queueTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double baselineNanosPerMb = Double.NaN;
+    private long lastDecrease;
+
+    public MinioConcurrencyLimiter(MeterRegistry meterRegistry,
+                                   @Value("${app.processing.limiter.initial-limit:8}") int initialLimit,
+                                   @Value("${app.processing.limiter.min-limit:1}") int minLimit,
+                                   @Value("${app.processing.limiter.max-limit:32}") int maxLimit,
+                                   @Value("${app.processing.limiter.latency-tolerance:2.0}") double tolerance) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.tolerance = tolerance;
+        this.queueTime = Timer.builder("minio.limiter.queue.time").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("minio.limiter.limit", this, l -> l.limit()).register(meterRegistry);
+        Gauge.builder("minio.limiter.inflight", this, l -> l.inFlight()).register(meterRegistry);
+        Gauge.builder("minio.limiter.waiting", this, l -> l.waiting()).register(meterRegistry);
+    }
+
+    // Блокирует, пока не освободится место под лимитом; возвращает момент старта запроса
+    public long acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= (int) limit) {
+                    available.await();
+                }
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        long granted = System.nanoTime();
+        queueTime.record(granted - start, TimeUnit.NANOSECONDS);
+        return granted;
+    }
+
+    public void release(long startedNanos, long bytes, boolean success) {
+        releaseMeasured(System.nanoTime() - startedNanos, bytes, success);
+    }
+
+    // ioNanos — время, которое запрос действительно ждал MinIO (без обработки прочитанного вызывающим)
+    public void releaseMeasured(long ioNanos, long bytes, boolean success) {
+        long now = System.nanoTime();
+        double sample = ioNanos / Math.max(bytes / MB, 1.0);
+        lock.lock();
+        try {
+            inFlight--;
+            if (!success) {
+                decrease(now);
+            } else {
+                if (Double.isNaN(baselineNanosPerMb) || sample < baselineNanosPerMb) {
+                    baselineNanosPerMb = sample;
+                } else {
+                    baselineNanosPerMb += (sample - baselineNanosPerMb) * BASELINE_DRIFT;
+                }
+                if (sample > baselineNanosPerMb * tolerance) {
+                    decrease(now);
+                } else if (inFlight + 1 >= (int) limit) {
+                    // растём, только если лимит действительно упирался
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // запрос оборван нами (читатель закрыт), а не MinIO: место освобождается без замера и без штрафа
+    public void abandon() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(long now) {
+        if (now - lastDecrease >= COOLDOWN_NANOS) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            lastDecrease = now;
+        }
+    }
+
+    // насыщение: ждущих не меньше, чем уже выполняется — брать новые сообщения бессмысленно
+    public boolean isSaturated() {
+        lock.lock();
+        try {
+            return waiting > 0 && waiting >= (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double limit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package rs.examproject.processing_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+import java.time.Duration;
+
+/**
+ * Журнал обработки в Redis, ключ — id события + objectKey.
+ * done — файл уже обработан, повторная доставка пропускается; lock — аренда на время обработки,
+ * чтобы дубль из другой реплики не качал тот же объект параллельно. Аренда истекает сама, если consumer упал.
+ */
+@Component
+public class ProcessingLedger {
+
+    private static final String DONE = "processing:done:";
+    private static final String LOCK = "processing:lock:";
+
+    private final StringRedisTemplate redis;
+    private final Duration doneTtl;
+    private final Duration lease;
+
+    public ProcessingLedger(StringRedisTemplate redis,
+                            @Value("${app.processing.ledger.done-ttl-hours:168}") long doneTtlHours,
+                            @Value("${app.processing.ledger.lease-minutes:15}") long leaseMinutes) {
+        this.redis = redis;
+        this.doneTtl = Duration.ofHours(doneTtlHours);
+        this.lease = Duration.ofMinutes(leaseMinutes);
+    }
+
+    public boolean isDone(FileUploadedEvent event) {
+        return Boolean.TRUE.equals(redis.hasKey(DONE + key(event)));
+    }
+
+    public boolean tryAcquire(FileUploadedEvent event) {
+        return Boolean.TRUE.equals(redis.opsForValue().setIfAbsent(LOCK + key(event), "1", lease));
+    }
+
+    public void markDone(FileUploadedEvent event) {
+        redis.opsForValue().set(DONE + key(event), "1", doneTtl);
+        redis.delete(LOCK + key(event));
+    }
+
+    public void release(FileUploadedEvent event) {
+        redis.delete(LOCK + key(event));
+    }
+
+    private static String key(FileUploadedEvent event) {
+        return event.id() + ":" + event.objectKey();
+    }
+}
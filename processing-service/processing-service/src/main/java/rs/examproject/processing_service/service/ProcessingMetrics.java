@@ -0,0 +1,131 @@
+package rs.examproject.processing_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики потребления очередей файлов, по lane (очереди):
+ * file.processing.duration{queue, outcome} — время обработки одного сообщения,
+ * file.processing.lag — от записи события в outbox file-service до начала обработки,
+ * file.processing.queue.messages / consumers — глубина очереди и число consumer'ов по данным брокера,
+ * file.processing.duplicates / retries / dead.lettered — пропущенные дубли, повторы и ушедшие в DLQ,
+ * file.processing.deferred — отложенные дубли, пока событие в работе у другого consumer'а.
+ */
+@Component
+public class ProcessingMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessingMetrics.class);
+
+    private final AmqpAdmin amqpAdmin;
+    private final Map<String, LaneMeters> lanes = new LinkedHashMap<>();
+    private final LaneMeters defaultLane;
+    private final Counter duplicates;
+    private final Counter retries;
+    private final Counter deadLettered;
+    private final Counter deferred;
+
+    public ProcessingMetrics(MeterRegistry meterRegistry,
+                             AmqpAdmin amqpAdmin,
+                             @Value("${app.file.queue:file.process}") String queue,
+                             @Value("${app.file.large-queue:file.process.large}") String largeQueue) {
+        this.amqpAdmin = amqpAdmin;
+        for (String lane : List.of(queue, largeQueue)) {
+            lanes.put(lane, new LaneMeters(lane, meterRegistry));
+        }
+        this.defaultLane = lanes.get(queue);
+        this.duplicates = Counter.builder("file.processing.duplicates").register(meterRegistry);
+        this.retries = Counter.builder("file.processing.retries").register(meterRegistry);
+        this.deadLettered = Counter.builder("file.processing.dead.lettered").register(meterRegistry);
+        this.deferred = Counter.builder("file.processing.deferred").register(meterRegistry);
+    }
+
+    public void recordLag(String queue, Duration sincePublished) {
+        if (!sincePublished.isNegative()) {
+            lane(queue).lag.record(sincePublished);
+        }
+    }
+
+    public void recordProcessed(String queue, long nanos, boolean ok) {
+        LaneMeters lane = lane(queue);
+        (ok ? lane.success : lane.failure).record(Duration.ofNanos(nanos));
+    }
+
+    private LaneMeters lane(String queue) {
+        return lanes.getOrDefault(queue, defaultLane);
+    }
+
+    public void duplicate() {
+        duplicates.increment();
+    }
+
+    public void deferred() {
+        deferred.increment();
+    }
+
+    public void retried() {
+        retries.increment();
+    }
+
+    public void deadLettered() {
+        deadLettered.increment();
+    }
+
+    // опрос брокера по таймеру, а не на каждый scrape: passive declare — отдельный запрос в RabbitMQ
+    @Scheduled(fixedDelayString = "${app.processing.queue-poll-ms:10000}")
+    public void pollQueue() {
+        lanes.forEach((queue, lane) -> {
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                if (info != null) {
+                    lane.messages.set(info.getMessageCount());
+                    lane.consumers.set(info.getConsumerCount());
+                }
+            } catch (RuntimeException e) {
+                log.debug("Cannot read queue info for {}", queue, e);
+            }
+        });
+    }
+
+    private static final class LaneMeters {
+        final Timer success;
+        final Timer failure;
+        final Timer lag;
+        final AtomicLong messages = new AtomicLong();
+        final AtomicLong consumers = new AtomicLong();
+
+        LaneMeters(String queue, MeterRegistry registry) {
+            success = duration(queue, "success", registry);
+            failure = duration(queue, "failure", registry);
+            lag = Timer.builder("file.processing.lag").tag("queue", queue)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(registry);
+            Gauge.builder("file.processing.queue.messages", messages, AtomicLong::get)
+                    .tag("queue", queue).register(registry);
+            Gauge.builder("file.processing.queue.consumers", consumers, AtomicLong::get)
+                    .tag("queue", queue).register(registry);
+        }
+
+        private static Timer duration(String queue, String outcome, MeterRegistry registry) {
+            return Timer.builder("file.processing.duration").tag("queue", queue).tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofMinutes(10))
+                    .register(registry);
+        }
+    }
+}
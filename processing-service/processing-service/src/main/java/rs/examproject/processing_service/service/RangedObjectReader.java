@@ -0,0 +1,320 @@
+package rs.examproject.processing_service.service;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Чтение объекта из MinIO. Объекты больше порога качаются частями (GetObject с offset/length)
+ * в несколько параллельных соединений и отдаются одним потоком в исходном порядке —
+ * анализаторы (sha256, сниффинг) зависят от порядка байтов.
+ * Вперёд читается не больше parallelism частей, так что память на объект ограничена parallelism * partSize.
+ * Каждый GET (целиком или часть) занимает место в MinioConcurrencyLimiter до конца чтения.
+ */
+@Component
+public class RangedObjectReader {
+
+    private final MinioClient minioClient;
+    private final MinioConcurrencyLimiter limiter;
+    private final String bucket;
+    private final long thresholdBytes;
+    private final long partSizeBytes;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public RangedObjectReader(MinioClient minioClient,
+                              MinioConcurrencyLimiter limiter,
+                              @Value("${minio.bucket}") String bucket,
+                              @Value("${app.processing.ranged.threshold-mb:256}") long thresholdMb,
+                              @Value("${app.processing.ranged.part-size-mb:16}") long partSizeMb,
+                              @Value("${app.processing.ranged.parallelism:4}") int parallelism,
+                              @Value("${app.processing.ranged.threads:16}") int threads) {
+        this.minioClient = minioClient;
+        this.limiter = limiter;
+        this.bucket = bucket;
+        this.thresholdBytes = thresholdMb * 1024 * 1024;
+        this.partSizeBytes = partSizeMb * 1024 * 1024;
+        this.parallelism = Math.max(parallelism, 1);
+        AtomicInteger counter = new AtomicInteger();
+        // общий пул на все объекты: сколько соединений к MinIO одновременно держит сервис целиком
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "minio-range-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // size — из события; null или меньше порога — обычный последовательный GET
+    public InputStream open(String objectKey, Long size) throws Exception {
+        if (size == null || size < thresholdBytes || parallelism == 1) {
+            long started = limiter.acquire();
+            try {
+                InputStream in = minioClient.getObject(GetObjectArgs.builder().bucket(bucket).object(objectKey).build());
+                return new LimitedInputStream(in, System.nanoTime() - started);
+            } catch (Exception e) {
+                limiter.release(started, 0, false);
+                throw e;
+            }
+        }
+        return new ParallelRangeInputStream(objectKey, size);
+    }
+
+    private byte[] fetch(String objectKey, long offset, long length, OpenParts open) throws Exception {
+        if (open.isClosed()) {
+            throw new InterruptedIOException("Read of " + objectKey + " was closed");
+        }
+        long started = limiter.acquire();
+        boolean success = false;
+        try (InputStream in = minioClient.getObject(GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(objectKey)
+                .offset(offset)
+                .length(length)
+                .build())) {
+            if (!open.register(in)) {
+                throw new InterruptedIOException("Read of " + objectKey + " was closed");
+            }
+            byte[] part;
+            try {
+                part = in.readAllBytes();
+            } finally {
+                open.unregister(in);
+            }
+            if (part.length != length) {
+                throw new IOException("Short range read for " + objectKey + " at " + offset
+                        + ": " + part.length + " of " + length + " bytes");
+            }
+            success = true;
+            return part;
+        } finally {
+            if (!success && open.isClosed()) {
+                limiter.abandon();
+            } else {
+                limiter.release(started, success ? length : 0, success);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class ParallelRangeInputStream extends InputStream {
+
+        private final String objectKey;
+        private final long size;
+        private final Deque<CompletableFuture<byte[]>> window = new ArrayDeque<>();
+        private final OpenParts open = new OpenParts();
+        private long nextOffset;
+        private byte[] current = new byte[0];
+        private int position;
+
+        ParallelRangeInputStream(String objectKey, long size) {
+            this.objectKey = objectKey;
+            this.size = size;
+            while (window.size() < parallelism && nextOffset < size) {
+                submitNext();
+            }
+        }
+
+        private void submitNext() {
+            long offset = nextOffset;
+            long length = Math.min(partSizeBytes, size - offset);
+            nextOffset += length;
+            window.addLast(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fetch(objectKey, offset, length, open);
+                } catch (Exception e) {
+                    throw new RangeFetchException(e);
+                }
+            }, executor));
+        }
+
+        // текущая часть дочитана — берём следующую по порядку и сразу заказываем ещё одну в окно
+        private boolean advance() throws IOException {
+            while (position >= current.length) {
+                CompletableFuture<byte[]> next = window.pollFirst();
+                if (next == null) {
+                    return false;
+                }
+                if (nextOffset < size) {
+                    submitNext();
+                }
+                try {
+                    current = next.get();
+                    position = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading " + objectKey);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() instanceof RangeFetchException r ? r.getCause() : e.getCause();
+                    throw new IOException("Cannot read range of " + objectKey, cause);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!advance()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        // cancel не прерывает уже идущий readAllBytes (CompletableFuture не трогает поток), поэтому ещё не
+        // начатые части отменяются, а начатые обрываются закрытием их потоков — соединение и место в лимитере
+        // освобождаются сразу, а не после докачки ненужной части
+        @Override
+        public void close() {
+            window.forEach(f -> f.cancel(false));
+            window.clear();
+            open.closeAll();
+            current = new byte[0];
+        }
+    }
+
+    // Задержка для лимитера — только ожидание MinIO: сам GET плюс время внутри read(). Пока вызывающий
+    // обрабатывает прочитанное (sha256, анализаторы), часы стоят, иначе медленный анализатор выглядел бы
+    // как медленный MinIO. Место отпускается на EOF — соединение дочитано — или при close(), что раньше.
+    private final class LimitedInputStream extends FilterInputStream {
+
+        private long ioNanos;
+        private long bytes;
+        private boolean failed;
+        private boolean released;
+
+        LimitedInputStream(InputStream in, long requestNanos) {
+            super(in);
+            this.ioNanos = requestNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long started = System.nanoTime();
+            try {
+                int b = super.read();
+                ioNanos += System.nanoTime() - started;
+                if (b >= 0) {
+                    bytes++;
+                } else {
+                    release();
+                }
+                return b;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long started = System.nanoTime();
+            try {
+                int n = super.read(b, off, len);
+                ioNanos += System.nanoTime() - started;
+                if (n > 0) {
+                    bytes += n;
+                } else if (n < 0) {
+                    release();
+                }
+                return n;
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (!released) {
+                released = true;
+                limiter.releaseMeasured(ioNanos, bytes, !failed);
+            }
+        }
+    }
+
+    // Потоки частей, которые сейчас читаются. После closeAll новые не регистрируются: fetch получит false
+    // и закроет свой поток сам (try-with-resources), так что гонка с close() ничего не оставляет открытым
+    private static final class OpenParts {
+
+        private final Set<InputStream> streams = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        boolean register(InputStream in) {
+            if (closed) {
+                return false;
+            }
+            streams.add(in);
+            if (closed) {
+                streams.remove(in);
+                return false;
+            }
+            return true;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        void unregister(InputStream in) {
+            streams.remove(in);
+        }
+
+        void closeAll() {
+            closed = true;
+            for (InputStream in : streams) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // читающий поток получит ошибку чтения, а она при закрытии никому не нужна
+                }
+            }
+        }
+    }
+
+    private static final class RangeFetchException extends RuntimeException {
+        RangeFetchException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
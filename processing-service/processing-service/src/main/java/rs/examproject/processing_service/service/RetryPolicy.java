@@ -0,0 +1,87 @@
+package rs.examproject.processing_service.service;
+
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Повторы через очереди задержки: для очереди q заводятся q.retry.1..q.retry.(maxAttempts-1)
+ * с x-message-ttl = initialDelay * multiplier^(n-1); истёкшее сообщение dead-letter'ом возвращается в q.
+ * Исчерпавшие попытки и заведомо неисправимые сообщения уходят в q.dlq; туда же брокер dead-letter'ит
+ * сообщения, отвергнутые контейнером (например, неразбираемый payload — до listener'а он не доходит),
+ * по политике брокера из DeadLetterPolicies.
+ * Дубли, чья аренда занята другим consumer'ом, откладываются по тем же очередям с растущей задержкой
+ * и отдельным счётчиком — попыткой это не считается.
+ */
+@Component
+public class RetryPolicy {
+
+    public static final String ATTEMPT_HEADER = "x-attempt";
+    public static final String ERROR_HEADER = "x-last-error";
+    public static final String DEFERRAL_HEADER = "x-deferrals";
+
+    private final int maxAttempts;
+    private final long initialDelayMs;
+    private final double multiplier;
+    private final int maxDeferrals;
+
+    public RetryPolicy(@Value("${app.processing.retry.max-attempts:5}") int maxAttempts,
+                       @Value("${app.processing.retry.initial-delay-ms:1000}") long initialDelayMs,
+                       @Value("${app.processing.retry.multiplier:4}") double multiplier,
+                       @Value("${app.processing.retry.max-deferrals:30}") int maxDeferrals) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialDelayMs = initialDelayMs;
+        this.multiplier = multiplier;
+        this.maxDeferrals = maxDeferrals;
+    }
+
+    public boolean canDefer(int deferrals) {
+        return deferrals <= maxDeferrals;
+    }
+
+    // n-я отсрочка ждёт в retry.n, дальше — в самой длинной очереди задержки
+    public String deferralQueue(String queue, int deferrals) {
+        return retryQueue(queue, Math.min(deferrals, retryQueues()));
+    }
+
+    private int retryQueues() {
+        return Math.max(maxAttempts - 1, 1);
+    }
+
+    // failedAttempts — сколько раз уже упало, включая текущую попытку
+    public boolean canRetry(int failedAttempts) {
+        return failedAttempts < maxAttempts;
+    }
+
+    public long delayMs(int retry) {
+        return Math.round(initialDelayMs * Math.pow(multiplier, retry - 1));
+    }
+
+    public String retryQueue(String queue, int retry) {
+        return queue + ".retry." + retry;
+    }
+
+    public String deadLetterQueue(String queue) {
+        return queue + ".dlq";
+    }
+
+    public Declarables topology(String queue) {
+        List<Declarable> declarables = new ArrayList<>();
+        // retry.1 нужна всегда: туда откладываются дубли, которые сейчас в работе у другого consumer'а
+        for (int retry = 1; retry <= retryQueues(); retry++) {
+            declarables.add(QueueBuilder.durable(retryQueue(queue, retry))
+                    .ttl((int) delayMs(retry))
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(queue)
+                    .build());
+        }
+        declarables.add(new Queue(deadLetterQueue(queue), true));
+        return new Declarables(declarables);
+    }
+}
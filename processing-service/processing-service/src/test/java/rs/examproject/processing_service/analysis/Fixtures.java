@@ -0,0 +1,125 @@
+package rs.examproject.processing_service.analysis;
+
+import rs.examproject.processing_service.dto.FileUploadedEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Минимальные заголовки форматов, собранные по спецификациям; пиксельных данных нет — анализаторам они не нужны
+final class Fixtures {
+
+    private static final int PADDING = 3;
+
+    private Fixtures() {
+    }
+
+    static FileUploadedEvent event(String declaredType) {
+        return new FileUploadedEvent(1L, "key", "file", declaredType, null, "ivan");
+    }
+
+    // прогоняет данные через сессию кусками по chunk байт; вокруг куска в буфере мусор —
+    // сессия должна читать только [offset, offset + length)
+    static void feed(FileAnalyzer.Session session, byte[] data, int chunk) {
+        byte[] buffer = new byte[chunk + 2 * PADDING];
+        for (int position = 0; position < data.length; position += chunk) {
+            int n = Math.min(chunk, data.length - position);
+            Arrays.fill(buffer, (byte) 0xFF);
+            System.arraycopy(data, position, buffer, PADDING, n);
+            session.update(buffer, PADDING, n);
+        }
+    }
+
+    static byte[] png(int width, int height) {
+        Bytes b = new Bytes().u8(0x89).ascii("PNG").u8(0x0D, 0x0A, 0x1A, 0x0A)
+                .u32be(13).ascii("IHDR").u32be(width).u32be(height).u8(8, 6, 0, 0, 0);
+        return b.u32be(0).bytes();
+    }
+
+    static byte[] gif(int width, int height) {
+        return new Bytes().ascii("GIF89a").u16le(width).u16le(height).u8(0xF7, 0, 0).bytes();
+    }
+
+    static byte[] bmp(int width, int height) {
+        return new Bytes().ascii("BM").u32le(0).u32le(0).u32le(54)
+                .u32le(40).u32le(width).u32le(height).u16le(1).u16le(24).bytes();
+    }
+
+    // SOI, APP0, APP1 c ложным FFC0 внутри (его надо пропустить по длине), заполняющие FF, DQT, SOF0, SOS
+    static byte[] jpeg(int width, int height) {
+        Bytes b = new Bytes().u8(0xFF, 0xD8);
+        b.u8(0xFF, 0xE0).u16be(16).ascii("JFIF").u8(0, 1, 1, 0).u16be(1).u16be(1).u8(0, 0);
+        b.u8(0xFF, 0xE1).u16be(2 + 9).u8(0xFF, 0xC0, 0, 17, 8, 0, 1, 0, 1);
+        b.u8(0xFF, 0xFF, 0xFF, 0xDB).u16be(2 + 65).zeros(65);
+        b.u8(0xFF, 0xC0).u16be(17).u8(8).u16be(height).u16be(width).u8(3).zeros(9);
+        b.u8(0xFF, 0xDA).u16be(12).zeros(10);
+        return b.u8(0xFF, 0xD9).bytes();
+    }
+
+    static byte[] webpVp8x(int width, int height) {
+        return riff("VP8X", new Bytes().u8(0x10, 0, 0, 0).u24le(width - 1).u24le(height - 1).bytes());
+    }
+
+    static byte[] webpVp8l(int width, int height) {
+        int bits = (width - 1) | ((height - 1) << 14);
+        return riff("VP8L", new Bytes().u8(0x2F).u32le(bits).zeros(5).bytes());
+    }
+
+    static byte[] webpVp8(int width, int height) {
+        return riff("VP8 ", new Bytes().u8(0x50, 0x01, 0x00).u8(0x9D, 0x01, 0x2A).u16le(width).u16le(height)
+                .zeros(4).bytes());
+    }
+
+    private static byte[] riff(String chunk, byte[] payload) {
+        return new Bytes().ascii("RIFF").u32le(4 + 8 + payload.length).ascii("WEBP")
+                .ascii(chunk).u32le(payload.length).raw(payload).bytes();
+    }
+
+    static final class Bytes {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Bytes u8(int... values) {
+            for (int v : values) {
+                out.write(v);
+            }
+            return this;
+        }
+
+        Bytes u16be(int v) {
+            return u8(v >> 8, v);
+        }
+
+        Bytes u32be(int v) {
+            return u8(v >> 24, v >> 16, v >> 8, v);
+        }
+
+        Bytes u16le(int v) {
+            return u8(v, v >> 8);
+        }
+
+        Bytes u24le(int v) {
+            return u8(v, v >> 8, v >> 16);
+        }
+
+        Bytes u32le(int v) {
+            return u8(v, v >> 8, v >> 16, v >> 24);
+        }
+
+        Bytes ascii(String s) {
+            return raw(s.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        Bytes zeros(int n) {
+            return raw(new byte[n]);
+        }
+
+        Bytes raw(byte[] bytes) {
+            out.writeBytes(bytes);
+            return this;
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+    }
+}
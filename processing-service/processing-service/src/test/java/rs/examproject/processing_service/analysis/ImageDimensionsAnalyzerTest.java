@@ -0,0 +1,67 @@
+package rs.examproject.processing_service.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageDimensionsAnalyzerTest {
+
+    // куски по 1 и 3 байта режут маркеры и длины JPEG посередине
+    private static final int[] CHUNKS = {1, 3, 16, 64 * 1024};
+
+    @Test
+    void jpegFromStartOfFrameAfterSkippedSegments() {
+        assertDimensions(Fixtures.jpeg(640, 480), "image/jpeg", 640, 480);
+        assertDimensions(Fixtures.jpeg(65535, 1), "image/jpeg", 65535, 1);
+    }
+
+    @Test
+    void webpAllThreeChunkTypes() {
+        assertDimensions(Fixtures.webpVp8x(4000, 3000), "image/webp", 4000, 3000);
+        assertDimensions(Fixtures.webpVp8l(1920, 1080), "image/webp", 1920, 1080);
+        assertDimensions(Fixtures.webpVp8(800, 600), "image/webp", 800, 600);
+    }
+
+    @Test
+    void headerFormats() {
+        assertDimensions(Fixtures.png(1024, 768), "image/png", 1024, 768);
+        assertDimensions(Fixtures.gif(320, 200), "image/gif", 320, 200);
+        // отрицательная высота BMP — порядок строк сверху вниз, размер тот же
+        assertDimensions(Fixtures.bmp(100, -50), "image/bmp", 100, 50);
+    }
+
+    @Test
+    void nothingForNonImagesOrTruncatedHeaders() {
+        AnalysisResult text = run(Fixtures.png(10, 10), "text/plain", 64);
+        assertNull(text.getImageWidth());
+
+        byte[] truncated = Arrays.copyOf(Fixtures.jpeg(10, 10), 30);
+        AnalysisResult jpeg = run(truncated, "image/jpeg", 64);
+        assertNull(jpeg.getImageWidth());
+        assertNull(jpeg.getImageHeight());
+
+        AnalysisResult png = run(Arrays.copyOf(Fixtures.png(10, 10), 20), "image/png", 64);
+        assertNull(png.getImageWidth());
+    }
+
+    private static void assertDimensions(byte[] data, String type, int width, int height) {
+        for (int chunk : CHUNKS) {
+            AnalysisResult result = run(data, type, chunk);
+            assertEquals(width, result.getImageWidth(), type + " width, chunk " + chunk);
+            assertEquals(height, result.getImageHeight(), type + " height, chunk " + chunk);
+        }
+    }
+
+    // тип в результате к complete уже выставлен MimeSniffAnalyzer (он раньше по @Order)
+    private static AnalysisResult run(byte[] data, String detectedType, int chunk) {
+        FileAnalyzer.Session session = new ImageDimensionsAnalyzer().start(Fixtures.event(detectedType));
+        Fixtures.feed(session, data, chunk);
+        AnalysisResult result = new AnalysisResult();
+        result.setDetectedContentType(detectedType);
+        session.complete(result);
+        return result;
+    }
+}
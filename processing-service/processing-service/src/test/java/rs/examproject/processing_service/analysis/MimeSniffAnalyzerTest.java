@@ -0,0 +1,91 @@
+package rs.examproject.processing_service.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MimeSniffAnalyzerTest {
+
+    @Test
+    void imageSignatures() {
+        assertEquals("image/png", detect(Fixtures.png(1, 1), "application/octet-stream"));
+        assertEquals("image/jpeg", detect(Fixtures.jpeg(1, 1), null));
+        assertEquals("image/gif", detect(Fixtures.gif(1, 1), "text/plain"));
+        assertEquals("image/bmp", detect(Fixtures.bmp(1, 1), null));
+        assertEquals("image/webp", detect(Fixtures.webpVp8x(1, 1), null));
+    }
+
+    @Test
+    void otherSignatures() {
+        assertEquals("application/pdf", detect(ascii("%PDF-1.7\n"), null));
+        assertEquals("application/gzip", detect(new byte[]{0x1F, (byte) 0x8B, 8, 0}, null));
+        assertEquals("video/mp4", detect(new Fixtures.Bytes().u32be(24).ascii("ftypisom").bytes(), null));
+        assertEquals("audio/mpeg", detect(ascii("ID3\u0004"), null));
+    }
+
+    @Test
+    void zipKeepsDeclaredMemberOfZipFamily() {
+        byte[] zip = new Fixtures.Bytes().ascii("PK").u8(3, 4).zeros(26).bytes();
+        String docx = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        assertEquals(docx, detect(zip, docx));
+        assertEquals("application/java-archive", detect(zip, "application/java-archive"));
+        assertEquals("application/zip", detect(zip, "image/png"));
+    }
+
+    @Test
+    void textDetection() {
+        assertEquals("text/plain", detect(ascii("hello, world\n"), "application/octet-stream"));
+        assertEquals("text/csv", detect(ascii("a,b\n1,2\n"), "text/csv"));
+        assertEquals("application/json", detect(ascii("{\"a\":1}"), "application/json"));
+        assertEquals("application/xml", detect(ascii("  \n<?xml version=\"1.0\"?><a/>"), "text/plain"));
+        assertEquals("text/html", detect(ascii("<!DOCTYPE HTML><html></html>"), null));
+        assertEquals("text/html", detect(ascii("<HTML><BODY>"), null));
+        assertEquals("text/plain", detect("Привет, мир".getBytes(StandardCharsets.UTF_8), null));
+    }
+
+    @Test
+    void htmlDetectionIgnoresDefaultLocale() {
+        Locale saved = Locale.getDefault();
+        try {
+            // в турецкой локали "I".toLowerCase() — "ı" без точки
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            assertEquals("text/html", detect(ascii("<HTML><TITLE>I</TITLE>"), null));
+            assertEquals("application/xml", detect(ascii("<?XML VERSION=\"1.0\"?>"), null));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    void binaryFallsBackToDeclaredType() {
+        byte[] binary = {1, 2, 0, 3, 4};
+        assertEquals("application/x-custom", detect(binary, "application/x-custom"));
+        assertEquals("application/octet-stream", detect(binary, " "));
+        assertEquals("application/octet-stream", detect(new byte[0], null));
+    }
+
+    @Test
+    void onlyFirst512BytesAreSniffed() {
+        byte[] data = new byte[2048];
+        byte[] png = Fixtures.png(2, 2);
+        System.arraycopy(png, 0, data, 0, png.length);
+        for (int chunk : new int[]{1, 7, 512, 4096}) {
+            FileAnalyzer.Session session = new MimeSniffAnalyzer().start(Fixtures.event(null));
+            Fixtures.feed(session, data, chunk);
+            AnalysisResult result = new AnalysisResult();
+            session.complete(result);
+            assertEquals("image/png", result.getDetectedContentType(), "chunk " + chunk);
+        }
+    }
+
+    private static String detect(byte[] data, String declared) {
+        return MimeSniffAnalyzer.detect(data, declared);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
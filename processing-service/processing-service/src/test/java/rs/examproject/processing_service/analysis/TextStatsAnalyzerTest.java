@@ -0,0 +1,61 @@
+package rs.examproject.processing_service.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// ожидаемые значения — как у wc -l / wc -w, кроме последней строки без \n: она тоже считается
+class TextStatsAnalyzerTest {
+
+    @Test
+    void countsLikeWc() {
+        assertCounts("hello world\nfoo bar baz\n", 2, 5);
+        assertCounts("hello world\nfoo", 2, 3);
+        assertCounts("one\r\ntwo\r\n", 2, 2);
+        assertCounts("  \t leading and   trailing \t ", 1, 3);
+        assertCounts("\n\n\n", 3, 0);
+        assertCounts("Война и мир\nЛев Толстой", 2, 5);
+    }
+
+    @Test
+    void emptyFile() {
+        assertCounts("", 0, 0);
+    }
+
+    @Test
+    void wordsSplitAcrossChunks() {
+        String text = "alpha beta\ngamma delta epsilon\nzeta";
+        for (int chunk = 1; chunk <= text.length(); chunk++) {
+            AnalysisResult result = run(text, chunk, "text/plain");
+            assertEquals(3L, result.getLineCount(), "chunk " + chunk);
+            assertEquals(6L, result.getWordCount(), "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void notReportedForNonText() {
+        AnalysisResult result = run("a b c\n", 64, "application/octet-stream");
+        assertNull(result.getLineCount());
+        assertNull(result.getWordCount());
+
+        assertEquals(2L, run("{\"a\": 1}", 64, "application/json").getWordCount());
+    }
+
+    private static void assertCounts(String text, long lines, long words) {
+        AnalysisResult result = run(text, 4, "text/plain");
+        assertEquals(lines, result.getLineCount(), "lines of \"" + text + "\"");
+        assertEquals(words, result.getWordCount(), "words of \"" + text + "\"");
+    }
+
+    private static AnalysisResult run(String text, int chunk, String detectedType) {
+        FileAnalyzer.Session session = new TextStatsAnalyzer().start(Fixtures.event(detectedType));
+        Fixtures.feed(session, text.getBytes(StandardCharsets.UTF_8), chunk);
+        AnalysisResult result = new AnalysisResult();
+        result.setDetectedContentType(detectedType);
+        session.complete(result);
+        return result;
+    }
+}
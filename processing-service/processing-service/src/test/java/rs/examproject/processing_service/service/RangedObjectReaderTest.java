@@ -0,0 +1,175 @@
+package rs.examproject.processing_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// MinIO подменён: GetObject отдаёт срез массива по offset/length. Порог и часть — 1 МБ, так что объект в 5 МБ
+// читается пятью частями по три в окне
+class RangedObjectReaderTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private final MinioClient minio = mock(MinioClient.class);
+    private final MinioConcurrencyLimiter limiter = new MinioConcurrencyLimiter(new SimpleMeterRegistry(), 8, 1, 32, 2.0);
+    private final RangedObjectReader reader = new RangedObjectReader(minio, limiter, "files", 1, 1, 3, 8);
+
+    @AfterEach
+    void shutdown() {
+        reader.shutdown();
+    }
+
+    @Test
+    void partsFinishingOutOfOrderAreReassembledInOrder() throws Exception {
+        byte[] data = random(5 * MB);
+        // чем раньше часть в объекте, тем дольше она качается — готовые части приходят в обратном порядке
+        when(minio.getObject(any(GetObjectArgs.class))).thenAnswer(i -> {
+            GetObjectArgs args = i.getArgument(0);
+            Thread.sleep(200 - args.offset() / MB * 40);
+            return response(slice(data, args.offset(), args.length()));
+        });
+
+        try (InputStream in = reader.open("obj", (long) data.length)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shortLastRangeFailsTheRead() throws Exception {
+        byte[] data = random(5 * MB);
+        // объект на сервере на 100 байт короче, чем заявлено в событии
+        when(minio.getObject(any(GetObjectArgs.class))).thenAnswer(i -> {
+            GetObjectArgs args = i.getArgument(0);
+            long end = Math.min(args.offset() + args.length(), data.length - 100);
+            return response(slice(data, args.offset(), end - args.offset()));
+        });
+
+        try (InputStream in = reader.open("obj", (long) data.length)) {
+            byte[] buffer = new byte[64 * 1024];
+            long[] read = {0};
+            IOException e = assertThrows(IOException.class, () -> {
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    read[0] += n;
+                }
+            });
+            assertTrue(e.getCause().getMessage().contains("Short range read"), e.getCause().getMessage());
+            // первые четыре части отданы целиком, ошибка — ровно на последней
+            assertEquals(4L * MB, read[0]);
+        }
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void closeAbortsPartsThatAreStillDownloading() throws Exception {
+        byte[] data = random(5 * MB);
+        CountDownLatch stuckOpened = new CountDownLatch(2);
+        CountDownLatch stuckClosed = new CountDownLatch(2);
+        // первая часть отдаётся сразу, остальные висят на чтении, пока их поток не закроют
+        when(minio.getObject(any(GetObjectArgs.class))).thenAnswer(i -> {
+            GetObjectArgs args = i.getArgument(0);
+            if (args.offset() == 0) {
+                return response(slice(data, 0, args.length()));
+            }
+            stuckOpened.countDown();
+            return response(new HangingStream(stuckClosed));
+        });
+
+        InputStream in = reader.open("obj", (long) data.length);
+        assertEquals(data[0] & 0xFF, in.read());
+        assertTrue(stuckOpened.await(5, TimeUnit.SECONDS));
+
+        in.close();
+        assertTrue(stuckClosed.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.inFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, limiter.inFlight());
+        // оборванные нами части — не ошибка MinIO, лимит не снижается
+        assertTrue(limiter.limit() >= 8.0, "limit " + limiter.limit());
+    }
+
+    @Test
+    void wholeObjectReleasesSlotAtEndOfStream() throws Exception {
+        byte[] data = random(1000);
+        when(minio.getObject(any(GetObjectArgs.class))).thenAnswer(i -> response(data));
+
+        InputStream in = reader.open("obj", (long) data.length);
+        assertEquals(1, limiter.inFlight());
+        assertArrayEquals(data, in.readAllBytes());
+        assertEquals(0, limiter.inFlight());
+        in.close();
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private static GetObjectResponse response(byte[] body) {
+        return response(new ByteArrayInputStream(body));
+    }
+
+    private static GetObjectResponse response(InputStream body) {
+        return new GetObjectResponse(Headers.of(), "files", "", "obj", body);
+    }
+
+    private static byte[] slice(byte[] data, long offset, long length) {
+        return Arrays.copyOfRange(data, (int) offset, (int) (offset + length));
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    // как сокет без данных: read блокируется, пока поток не закроют, затем падает
+    private static final class HangingStream extends InputStream {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final CountDownLatch reported;
+
+        HangingStream(CountDownLatch reported) {
+            this.reported = reported;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                if (closed.await(30, TimeUnit.SECONDS)) {
+                    throw new IOException("Socket closed");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Read timed out");
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed.getCount() > 0) {
+                closed.countDown();
+                reported.countDown();
+            }
+        }
+    }
+}